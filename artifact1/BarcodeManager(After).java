@@ -2,6 +2,7 @@ package com.frank.barcodehealthapp;
 
 import android.content.Context;
 import android.util.Log;
+import android.util.Size;
 
 import androidx.annotation.OptIn;
 import androidx.camera.core.CameraSelector;
@@ -13,18 +14,19 @@ import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
 
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.mlkit.vision.barcode.BarcodeScanning;
 import com.google.mlkit.vision.barcode.common.Barcode;
 import com.google.mlkit.vision.common.InputImage;
 
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Manages barcode scanning and product lookup
@@ -33,6 +35,16 @@ import java.util.concurrent.ExecutorService;
  */
 public class BarcodeManager {
 
+    // Detections allowed to run at once. With STRATEGY_KEEP_ONLY_LATEST CameraX delivers the next frame
+    // only after the open ImageProxy is closed, and FrameScheduler closes it when detection finishes,
+    // so one is all that can ever be in flight
+    private static final int MAX_DETECTIONS_IN_FLIGHT = 1;
+
+    private static final String INVALID_BARCODE = "Invalid barcode, please scan again.";
+
+    // Callbacks waiting on a lookup that is already running, by barcode
+    private static final Map<String, List<ProductResultCallback>> inFlight = new HashMap<>();
+
     /**
      * Callback interface for delivering product lookup results
      */
@@ -48,6 +60,15 @@ public class BarcodeManager {
      */
     public static void startCamera(Context context, PreviewView previewView, ExecutorService executor,
                                    ImageAnalysis.Analyzer analyzer) {
+        startCamera(context, previewView, executor, analyzer, null);
+    }
+
+    /**
+     * Same as startCamera, with the analysis frames requested at a target resolution (null for the default)
+     * Live OCR needs more pixels than barcode scanning to read small label text
+     */
+    public static void startCamera(Context context, PreviewView previewView, ExecutorService executor,
+                                   ImageAnalysis.Analyzer analyzer, Size analysisResolution) {
         ListenableFuture<ProcessCameraProvider> cameraProviderFuture = ProcessCameraProvider.getInstance(context);
         cameraProviderFuture.addListener(() -> {
             try {
@@ -58,9 +79,10 @@ public class BarcodeManager {
                 preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
                 // Set up image analysis for barcode scanning
-                ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                        .build();
+                ImageAnalysis.Builder analysisBuilder = new ImageAnalysis.Builder()
+                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+                if (analysisResolution != null) analysisBuilder.setTargetResolution(analysisResolution);
+                ImageAnalysis imageAnalysis = analysisBuilder.build();
                 imageAnalysis.setAnalyzer(executor, analyzer);
 
                 // Use the rear-facing camera
@@ -92,12 +114,12 @@ public class BarcodeManager {
 
         InputImage image = InputImage.fromMediaImage(imageProxy.getImage(), imageProxy.getImageInfo().getRotationDegrees());
 
-        BarcodeScanning.getClient().process(image)
+        MlKitBarcodeDetector.client().process(image)
                 .addOnSuccessListener(barcodes -> {
                     for (Barcode barcode : barcodes) {
-                        String rawValue = barcode.getRawValue();
-                        if (rawValue != null) {
-                            callback.onBarcodeDetected(rawValue, requiredStableFrames, scannedBarcodes);
+                        String value = MlKitBarcodeDetector.canonicalValue(barcode);
+                        if (value != null) {
+                            callback.onBarcodeDetected(value, requiredStableFrames, scannedBarcodes);
                         }
                     }
                 })
@@ -105,6 +127,55 @@ public class BarcodeManager {
                 .addOnCompleteListener(task -> imageProxy.close());
     }
 
+    /**
+     * Scans an image frame and reports each barcode once it has been stable across frames
+     * Stability is decided by the voter in O(1) per detection, without keeping past detections
+     */
+    @OptIn(markerClass = androidx.camera.core.ExperimentalGetImage.class)
+    public static void scanBarcode(ImageProxy imageProxy, FrameStabilityVoter voter, StableBarcodeListener listener) {
+        if (imageProxy.getImage() == null) {
+            imageProxy.close();
+            return;
+        }
+
+        InputImage image = InputImage.fromMediaImage(imageProxy.getImage(), imageProxy.getImageInfo().getRotationDegrees());
+
+        MlKitBarcodeDetector.client().process(image)
+                .addOnSuccessListener(barcodes -> {
+                    voter.nextFrame();
+                    for (Barcode barcode : barcodes) {
+                        String value = MlKitBarcodeDetector.canonicalValue(barcode);
+                        if (value != null && voter.vote(value)) {
+                            listener.onStableBarcode(value);
+                        }
+                    }
+                })
+                .addOnFailureListener(e -> Log.e("Scanner", "Detection failed", e))
+                .addOnCompleteListener(task -> imageProxy.close());
+    }
+
+    /**
+     * Builds a CameraX analyzer that schedules frames onto the shared ML Kit detector
+     * Caps concurrent detections, skips frames when the detector falls behind, and reports
+     * barcodes once the voter considers them stable. Pass it to startCamera()
+     */
+    public static ImageAnalysis.Analyzer createBarcodeAnalyzer(FrameStabilityVoter voter, StableBarcodeListener listener) {
+        FrameScheduler<ImageProxy> scheduler = new FrameScheduler<>(new MlKitBarcodeDetector(), values -> {
+            voter.nextFrame();
+            for (String value : values) {
+                if (voter.vote(value)) listener.onStableBarcode(value);
+            }
+        }, MAX_DETECTIONS_IN_FLIGHT);
+        return scheduler::offer;
+    }
+
+    /**
+     * Receives barcodes that the FrameStabilityVoter considers stable
+     */
+    public interface StableBarcodeListener {
+        void onStableBarcode(String value);
+    }
+
     /**
      * Callback interface to report barcode detection results from scanBarcode()
      */
@@ -115,57 +186,202 @@ public class BarcodeManager {
     /**
      * Performs an async HTTP GET request to OpenFoodFacts api
      * to retrieve product data (name, brand, ingredients) by barcode
+     * The barcode is canonicalized first (see Gtin), so every spelling of a product shares one
+     * lookup; product codes failing check-digit validation are reported without a request
      */
-    public static void lookupProductName(String barcode, ProductResultCallback callback) {
-        new Thread(() -> {
+    public static void lookupProductName(String scanned, ProductResultCallback callback) {
+        String barcode = Gtin.canonicalize(scanned);
+        if (barcode == null) {
+            callback.onError(INVALID_BARCODE);
+            return;
+        }
+        if (joinInFlight(barcode, callback)) return;
+        ProductResultCallback waiting = inFlightCallback(barcode);
+
+        submit(() -> {
             try {
-                String finalBarcode = barcode; // make a new variable for the final barcode
+                deliver(fetchProduct(null, barcode), waiting);
+            } catch (Exception e) {
+                e.printStackTrace();
+                waiting.onError(errorMessage(e));
+            }
+        }, waiting);
+    }
 
-                // Check for Walmart QR format
-                if (barcode.contains("w-mt.co")) {
-                    // Retrieve UPC code from walmart system
-                    String upc = IngredientDataLoader.walmartQRLookup(barcode);
+    /**
+     * Offline-first lookup: serves the on-disk ProductCache before any network call
+     * - Fresh entries are returned straight from disk
+     * - Stale entries are returned straight from disk and refreshed in the background for next time
+     * - Misses go to the network and are cached; if the network fails, no result is cached
+     */
+    public static void lookupProductName(Context context, String scanned, ProductResultCallback callback) {
+        String barcode = Gtin.canonicalize(scanned);
+        if (barcode == null) {
+            callback.onError(INVALID_BARCODE);
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        ProductCache cache = ProductCache.get(appContext);
+        if (joinInFlight(barcode, callback)) return;
+        ProductResultCallback waiting = inFlightCallback(barcode);
 
-                    if (upc == null || upc.length() < 6) {
-                        callback.onError("Could not extract UPC from Walmart QR code.");
-                        return;
-                    }
-                    // Use found UPC as barcode
-                    finalBarcode = upc;
-                }
+        submit(() -> {
+            ProductCache.Entry cached = cache.lookup(barcode);
+            if (cached != null) {
+                deliver(cached.product, waiting);
+                if (!cached.isFresh(System.currentTimeMillis())) revalidate(appContext, cache, barcode);
+                return;
+            }
 
-                // OpenFoodFacts UPC product ingredients lookup
-                String urlString = "https://world.openfoodfacts.org/api/v2/product/" + finalBarcode;
-                HttpURLConnection conn = (HttpURLConnection) new URL(urlString).openConnection();
-                conn.setRequestMethod("GET");
-
-                int responseCode = conn.getResponseCode();
-                if (responseCode != 200) throw new Exception("HTTP error code: " + responseCode);
-
-                // Reads data from adapted URL get request
-                BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                StringBuilder result = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) result.append(line);
-                reader.close();
-
-                // Extracts desired product info (name/brand/ingredients)
-                JSONObject json = new JSONObject(result.toString());
-                if (json.getInt("status") == 1 && json.has("product")) {
-                    JSONObject product = json.getJSONObject("product");
-                    String name = product.optString("product_name", "Unnamed Product");
-                    String brand = product.optString("brands", "Unknown Brand");
-                    String ingredients = product.optString("ingredients_text", "No ingredients listed");
-                    callback.onProductFound(name, brand, ingredients);
-                } else {
-                    callback.onProductNotFound();
-                }
+            try {
+                ProductInfo product = fetchProduct(appContext, barcode);
+                if (product != null) cache.put(barcode, product);
+                deliver(product, waiting);
             } catch (Exception e) {
                 e.printStackTrace();
-                callback.onError("Error retrieving product info.");
+                waiting.onError(errorMessage(e));
+            }
+        }, waiting);
+    }
+
+    /**
+     * Single-flight: if a lookup for this barcode is already running, queue the callback on it
+     * Returns true if the caller should not start its own lookup
+     */
+    private static boolean joinInFlight(String barcode, ProductResultCallback callback) {
+        synchronized (inFlight) {
+            List<ProductResultCallback> waiting = inFlight.get(barcode);
+            if (waiting != null) {
+                waiting.add(callback);
+                return true;
+            }
+            waiting = new ArrayList<>(2);
+            waiting.add(callback);
+            inFlight.put(barcode, waiting);
+            return false;
+        }
+    }
+
+    // Delivers one result to every callback that joined the lookup, then lets the next scan start a new one
+    private static ProductResultCallback inFlightCallback(String barcode) {
+        return new ProductResultCallback() {
+            @Override
+            public void onProductFound(String name, String brand, String ingredients) {
+                for (ProductResultCallback callback : finish()) callback.onProductFound(name, brand, ingredients);
+            }
+
+            @Override
+            public void onProductNotFound() {
+                for (ProductResultCallback callback : finish()) callback.onProductNotFound();
+            }
+
+            @Override
+            public void onError(String error) {
+                for (ProductResultCallback callback : finish()) callback.onError(error);
+            }
+
+            private List<ProductResultCallback> finish() {
+                synchronized (inFlight) {
+                    List<ProductResultCallback> waiting = inFlight.remove(barcode);
+                    return waiting != null ? waiting : Collections.<ProductResultCallback>emptyList();
+                }
+            }
+        };
+    }
+
+    // Runs a lookup on the shared network pool; reports an error if the pool is saturated
+    private static void submit(Runnable lookup, ProductResultCallback callback) {
+        try {
+            HttpTransport.executor().execute(lookup);
+        } catch (RejectedExecutionException e) {
+            callback.onError("Too many lookups in progress, try again.");
+        }
+    }
+
+    // Refreshes a stale cache entry without reporting anything to the caller
+    private static void revalidate(Context context, ProductCache cache, String barcode) {
+        try {
+            HttpTransport.executor().execute(() -> {
+                try {
+                    ProductInfo product = fetchProduct(context, barcode);
+                    if (product != null) cache.put(barcode, product);
+                } catch (Exception e) {
+                    // Keep serving the stale entry; we'll try again on the next scan
+                    Log.w("ProductLookup", "Revalidation failed for " + barcode, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Busy; the entry stays stale until the next scan
+        }
+    }
+
+    private static void deliver(ProductInfo product, ProductResultCallback callback) {
+        if (product != null) callback.onProductFound(product.name, product.brand, product.ingredients);
+        else callback.onProductNotFound();
+    }
+
+    private static String errorMessage(Exception e) {
+        return e instanceof WalmartLookupException ? e.getMessage() : "Error retrieving product info.";
+    }
+
+    /**
+     * Resolves Walmart QR codes and fetches the product from OpenFoodFacts
+     * With a Context, resolved Walmart links are cached persistently and the local product store
+     * (if one has been imported) is consulted before the network
+     * Returns null if OpenFoodFacts doesn't know the product
+     */
+    static ProductInfo fetchProduct(Context context, String barcode) throws Exception {
+        String finalBarcode = barcode; // make a new variable for the final barcode
+
+        // Check for Walmart QR format
+        if (barcode.contains("w-mt.co")) {
+            // Retrieve UPC code from walmart system
+            String upc = WalmartQrResolver.resolve(context, barcode);
+
+            long gtin = upc == null ? Gtin.INVALID : Gtin.parse(upc);
+            if (gtin == Gtin.INVALID) {
+                throw new WalmartLookupException("Could not extract UPC from Walmart QR code.");
             }
-        }).start();
+            // Use found UPC as barcode
+            finalBarcode = Gtin.toCode(gtin);
+        }
+
+        // Products in the imported local catalogue need no network at all
+        LocalProductStore localStore = context == null ? null : LocalProductStore.get(context);
+        if (localStore != null) {
+            try {
+                ProductInfo local = localStore.lookup(finalBarcode);
+                if (local != null) return local;
+            } catch (IOException e) {
+                // Store replaced or unreadable mid-lookup; OpenFoodFacts still has the product
+                Log.w("LocalProductStore", "Local lookup failed", e);
+            }
+        }
+
+        // OpenFoodFacts UPC product ingredients lookup, only the fields we show
+        HttpURLConnection conn = HttpTransport.open(OpenFoodFacts.productUrl(finalBarcode));
+        int responseCode = conn.getResponseCode();
+        if (responseCode != 200) {
+            conn.disconnect();
+            throw new Exception("HTTP error code: " + responseCode);
+        }
+
+        // Extracts desired product info (name/brand/ingredients), stopping once all three are read
+        InputStream in = HttpTransport.decode(conn, conn.getInputStream());
+        try {
+            return OpenFoodFacts.readProduct(in);
+        } finally {
+            HttpTransport.finish(conn, in);
+        }
     }
 
+    /**
+     * A Walmart QR code that couldn't be resolved to a UPC; the message is shown to the user
+     */
+    static final class WalmartLookupException extends Exception {
+        WalmartLookupException(String message) {
+            super(message);
+        }
+    }
 
 }
@@ -0,0 +1,173 @@
+package com.frank.barcodehealthapp;
+
+import java.util.Arrays;
+
+/**
+ * Edit costs for OCR text, where some mistakes are far more likely than others
+ * - Ordinary insertions, deletions and substitutions cost EDIT
+ * - Listed substitutions (o/0, l/1, b/8 ...) and merges (rn/m, cl/d ...) cost less
+ *
+ * Costs are symmetric and apply to both cases of a letter. Used by EditDistance.weighted
+ */
+public final class ConfusionCosts {
+
+    // Cost of an ordinary edit; confusion costs are fractions of it
+    public static final int EDIT = 10;
+
+    // Common misreads of printed label text
+    public static final ConfusionCosts OCR = new Builder()
+            .substitution('o', '0', 2)
+            .substitution('l', '1', 2)
+            .substitution('i', '1', 2)
+            .substitution('i', 'l', 2)
+            .substitution('b', '8', 3)
+            .substitution('s', '5', 3)
+            .substitution('z', '2', 3)
+            .substitution('g', '6', 3)
+            .substitution('g', '9', 4)
+            .substitution('e', '3', 4)
+            .substitution('a', '4', 4)
+            .substitution('u', 'v', 4)
+            .merge("rn", 'm', 3)
+            .merge("cl", 'd', 4)
+            .merge("vv", 'w', 4)
+            .merge("ii", 'u', 4)
+            .build();
+
+    private final byte[] substitution;   // ASCII pair cost, [a << 7 | b]
+    private final char[] mergeFirst;
+    private final char[] mergeSecond;
+    private final char[] mergeInto;
+    private final int[] mergeCost;
+    private final int minSubstitution;   // cheapest substitution (one Levenshtein operation)
+    private final int minMerge;          // cheapest merge (two Levenshtein operations), 0 if none
+    private final int lengthUnit;        // lowest cost of changing the length by one
+
+    private ConfusionCosts(Builder builder) {
+        substitution = builder.substitution.clone();
+        int n = builder.merges;
+        mergeFirst = Arrays.copyOf(builder.mergeFirst, n);
+        mergeSecond = Arrays.copyOf(builder.mergeSecond, n);
+        mergeInto = Arrays.copyOf(builder.mergeInto, n);
+        mergeCost = Arrays.copyOf(builder.mergeCost, n);
+
+        int cheapestSubstitution = EDIT;
+        for (byte cost : substitution) {
+            if (cost != 0) cheapestSubstitution = Math.min(cheapestSubstitution, cost);
+        }
+        int cheapestMerge = n == 0 ? 0 : EDIT;
+        for (int cost : mergeCost) cheapestMerge = Math.min(cheapestMerge, cost);
+
+        minSubstitution = cheapestSubstitution;
+        minMerge = cheapestMerge;
+        lengthUnit = n == 0 ? EDIT : cheapestMerge;
+    }
+
+    /**
+     * Cost of reading a as b
+     */
+    int substitution(char a, char b) {
+        if (a == b) return 0;
+        if (a < 128 && b < 128) return substitution[a << 7 | b];
+        return EDIT;
+    }
+
+    /**
+     * Cost of reading the pair (first, second) as the single char into, or -1 if not a listed merge
+     */
+    int merge(char first, char second, char into) {
+        for (int i = 0; i < mergeInto.length; i++) {
+            if (mergeInto[i] == into && mergeFirst[i] == first && mergeSecond[i] == second) return mergeCost[i];
+        }
+        return -1;
+    }
+
+    /**
+     * Largest Levenshtein distance two strings can have while their weighted cost is at most maxCost
+     * Lets BK-tree searches, which work in Levenshtein distance, prune for a weighted threshold
+     */
+    public int levenshteinBound(int maxCost) {
+        // Substitutions cost at least minSubstitution per operation, insertions and deletions EDIT,
+        // and a merge (a substitution plus an insertion or deletion) minMerge per two operations
+        int bound = maxCost / minSubstitution;
+        if (minMerge > 0) bound = (int) Math.max(bound, 2L * maxCost / minMerge);
+        return bound;
+    }
+
+    // Lowest cost per char of length difference
+    int lengthUnit() {
+        return lengthUnit;
+    }
+
+    public static final class Builder {
+        private final byte[] substitution = new byte[128 * 128];
+        private char[] mergeFirst = new char[4];
+        private char[] mergeSecond = new char[4];
+        private char[] mergeInto = new char[4];
+        private int[] mergeCost = new int[4];
+        private int merges = 0;
+
+        public Builder() {
+            Arrays.fill(substitution, (byte) EDIT);
+            for (int c = 0; c < 128; c++) substitution[c << 7 | c] = 0;
+        }
+
+        /**
+         * Cost of confusing a with b (either way, either case), between 1 and EDIT
+         */
+        public Builder substitution(char a, char b, int cost) {
+            checkCost(cost);
+            for (char x : cases(a)) {
+                for (char y : cases(b)) {
+                    if (x >= 128 || y >= 128) throw new IllegalArgumentException("ASCII only: " + a + "/" + b);
+                    substitution[x << 7 | y] = (byte) cost;
+                    substitution[y << 7 | x] = (byte) cost;
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Cost of reading the two-char sequence pair as into (either way, either case), between 1 and EDIT
+         */
+        public Builder merge(String pair, char into, int cost) {
+            checkCost(cost);
+            if (pair.length() != 2) throw new IllegalArgumentException("Merge needs two chars: " + pair);
+            for (char first : cases(pair.charAt(0))) {
+                for (char second : cases(pair.charAt(1))) {
+                    for (char target : cases(into)) addMerge(first, second, target, cost);
+                }
+            }
+            return this;
+        }
+
+        public ConfusionCosts build() {
+            return new ConfusionCosts(this);
+        }
+
+        private void addMerge(char first, char second, char into, int cost) {
+            if (merges == mergeInto.length) {
+                int size = merges * 2;
+                mergeFirst = Arrays.copyOf(mergeFirst, size);
+                mergeSecond = Arrays.copyOf(mergeSecond, size);
+                mergeInto = Arrays.copyOf(mergeInto, size);
+                mergeCost = Arrays.copyOf(mergeCost, size);
+            }
+            mergeFirst[merges] = first;
+            mergeSecond[merges] = second;
+            mergeInto[merges] = into;
+            mergeCost[merges] = cost;
+            merges++;
+        }
+
+        private static void checkCost(int cost) {
+            if (cost < 1 || cost > EDIT) throw new IllegalArgumentException("Cost must be 1.." + EDIT + ": " + cost);
+        }
+
+        private static char[] cases(char c) {
+            char lower = Character.toLowerCase(c);
+            char upper = Character.toUpperCase(c);
+            return lower == upper ? new char[]{c} : new char[]{lower, upper};
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.frank.barcodehealthapp;
+
+/**
+ * Bounded Levenshtein distance kernel used by every fuzzy ingredient lookup
+ * - Patterns up to 64 chars use Myers/Hyyrö bit-parallel rows (a few word operations per text char)
+ * - Longer strings fall back to a DP over the diagonal band |i - j| <= cap, in one reused row
+ * - Both paths stop early once the distance is known to exceed the cap
+ * - weighted() is a separate mode for OCR text, using per-pair costs from ConfusionCosts
+ *
+ * Scratch buffers are kept per thread, so steady-state calls do not allocate
+ */
+public final class EditDistance {
+
+    private static final ThreadLocal<EditDistance> LOCAL = new ThreadLocal<EditDistance>() {
+        @Override
+        protected EditDistance initialValue() {
+            return new EditDistance();
+        }
+    };
+
+    // Match masks for ASCII pattern chars; non-ASCII chars are resolved by scanning the pattern
+    private final long[] peq = new long[128];
+    private String preparedPattern = null;
+
+    // Reusable DP row for the long-string fallback
+    private int[] row = new int[65];
+
+    // Reusable DP rows for the weighted mode (it also looks two rows back, for merges)
+    private int[] weightedRow = new int[65];
+    private int[] weightedPrevious = new int[65];
+    private int[] weightedBeforePrevious = new int[65];
+
+    private EditDistance() {
+    }
+
+    /**
+     * Returns the exact Levenshtein distance between two strings
+     */
+    public static int distance(String a, String b) {
+        return LOCAL.get().compute(a, b, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the Levenshtein distance if it is at most cap, otherwise cap + 1
+     * Callers that repeatedly compare one query against many keys should pass the query as a,
+     * so its match masks are prepared once and reused across calls
+     */
+    public static int bounded(String a, String b, int cap) {
+        return LOCAL.get().compute(a, b, cap);
+    }
+
+    /**
+     * Returns the confusion-weighted edit cost if it is at most cap, otherwise cap + 1
+     * Costs are in ConfusionCosts units: an ordinary edit costs ConfusionCosts.EDIT,
+     * listed confusions such as o/0 or rn/m cost less
+     */
+    public static int weighted(String a, String b, ConfusionCosts costs, int cap) {
+        return LOCAL.get().computeWeighted(a, b, costs, cap);
+    }
+
+    private int compute(String a, String b, int cap) {
+        int over = cap == Integer.MAX_VALUE ? cap : cap + 1;
+
+        int la = a.length();
+        int lb = b.length();
+        if (Math.abs(la - lb) > cap) return over;
+        if (la == 0) return lb;
+        if (lb == 0) return la;
+
+        if (la <= 64) return myers(a, b, cap, over);
+        if (lb <= 64) return myers(b, a, cap, over);
+        return banded(a, b, cap, over);
+    }
+
+    /**
+     * Bit-parallel global edit distance (Hyyrö's formulation of Myers' algorithm)
+     * Each pattern row is one bit of the vertical delta vectors, the text is consumed one char at a time
+     */
+    private int myers(String pattern, String text, int cap, int over) {
+        preparePattern(pattern);
+
+        int m = pattern.length();
+        int n = text.length();
+        long last = 1L << (m - 1);
+        long pv = m == 64 ? -1L : (1L << m) - 1;
+        long mv = 0L;
+        int score = m;
+
+        for (int j = 0; j < n; j++) {
+            long eq = matchMask(pattern, text.charAt(j));
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+
+            if ((ph & last) != 0) score++;
+            else if ((mh & last) != 0) score--;
+
+            // Row 0 grows by one per text char, so a +1 horizontal delta is shifted in
+            ph = (ph << 1) | 1L;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+
+            // The last row can drop by at most one per remaining text char
+            if (score - (n - j - 1) > cap) return over;
+        }
+
+        return score > cap ? over : score;
+    }
+
+    // Builds match masks for the pattern, reusing them if the same pattern is passed again
+    private void preparePattern(String pattern) {
+        if (pattern == preparedPattern) return;
+
+        if (preparedPattern != null) {
+            for (int i = 0; i < preparedPattern.length(); i++) {
+                char c = preparedPattern.charAt(i);
+                if (c < 128) peq[c] = 0L;
+            }
+        }
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c < 128) peq[c] |= 1L << i;
+        }
+        preparedPattern = pattern;
+    }
+
+    private long matchMask(String pattern, char c) {
+        if (c < 128) return peq[c];
+
+        long mask = 0L;
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == c) mask |= 1L << i;
+        }
+        return mask;
+    }
+
+    /**
+     * Fallback for strings longer than 64 chars: single-row DP over the diagonal band |i - j| <= cap
+     * A cell further off the diagonal is at least |i - j| > cap, so it is never filled and reads as over.
+     * Exits once every cell of the band in the current row is already above the cap
+     */
+    private int banded(String s1, String s2, int cap, int over) {
+        int m = s1.length();
+        int n = s2.length();
+        int band = Math.min(cap, Math.max(m, n));
+        if (row.length < n + 1) row = new int[n + 1];
+        int[] costs = row;
+
+        int hi = Math.min(n, band);
+        for (int j = 0; j <= hi; j++) costs[j] = j;
+        if (hi < n) costs[hi + 1] = over;
+
+        for (int i = 1; i <= m; i++) {
+            int lo = Math.max(1, i - band);
+            hi = Math.min(n, i + band);
+
+            // costs[lo - 1 .. hi] still hold row i - 1; the cell left of the band is over unless it is column 0
+            int nw = costs[lo - 1];
+            int left = lo == 1 ? i : over;
+            if (lo == 1) costs[0] = i;
+            int rowMin = left;
+            char c = s1.charAt(i - 1);
+            for (int j = lo; j <= hi; j++) {
+                int up = costs[j];
+                int cj = Math.min(1 + Math.min(up, left), c == s2.charAt(j - 1) ? nw : nw + 1);
+                nw = up;
+                costs[j] = cj;
+                left = cj;
+                if (cj < rowMin) rowMin = cj;
+            }
+            // Row i + 1 reaches one column further right, where row i has no band cell
+            if (hi < n) costs[hi + 1] = over;
+            if (rowMin > cap) return over;
+        }
+
+        return costs[n] > cap ? over : costs[n];
+    }
+
+    /**
+     * Weighted DP over three reusable rows; a merge (rn > m) reads one row further back
+     * Every cost is non-negative, so once two consecutive rows are above the cap no later row can return under it
+     */
+    private int computeWeighted(String a, String b, ConfusionCosts costs, int cap) {
+        int over = cap == Integer.MAX_VALUE ? cap : cap + 1;
+
+        int la = a.length();
+        int lb = b.length();
+        if ((long) Math.abs(la - lb) * costs.lengthUnit() > cap) return over;
+
+        if (weightedRow.length < lb + 1) {
+            weightedRow = new int[lb + 1];
+            weightedPrevious = new int[lb + 1];
+            weightedBeforePrevious = new int[lb + 1];
+        }
+        int[] current = weightedRow;
+        int[] previous = weightedPrevious;
+        int[] beforePrevious = weightedBeforePrevious;
+
+        for (int j = 0; j <= lb; j++) previous[j] = j * ConfusionCosts.EDIT;
+        int previousMin = 0;
+
+        for (int i = 1; i <= la; i++) {
+            char ca = a.charAt(i - 1);
+            current[0] = i * ConfusionCosts.EDIT;
+            int rowMin = current[0];
+
+            for (int j = 1; j <= lb; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = Math.min(previous[j], current[j - 1]) + ConfusionCosts.EDIT;
+                cost = Math.min(cost, previous[j - 1] + costs.substitution(ca, cb));
+
+                if (i >= 2) {
+                    int merge = costs.merge(a.charAt(i - 2), ca, cb);
+                    if (merge != -1) cost = Math.min(cost, beforePrevious[j - 1] + merge);
+                }
+                if (j >= 2) {
+                    int merge = costs.merge(b.charAt(j - 2), cb, ca);
+                    if (merge != -1) cost = Math.min(cost, previous[j - 2] + merge);
+                }
+
+                current[j] = cost;
+                if (cost < rowMin) rowMin = cost;
+            }
+            if (rowMin > cap && previousMin > cap) return over;
+
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+            previousMin = rowMin;
+        }
+
+        int result = previous[lb];
+        return result > cap ? over : result;
+    }
+}
@@ -0,0 +1,21 @@
+package com.frank.barcodehealthapp;
+
+import java.util.List;
+
+/**
+ * Asynchronous detector that reads string values (barcodes, text lines) from one kind of frame
+ * ML Kit on device (MlKitBarcodeDetector, MlKitTextDetector); anything else, e.g. a fake, for JVM tests and benchmarks
+ */
+public interface FrameDetector<F> {
+
+    /**
+     * Starts detection on a frame and calls back exactly once, on any thread
+     * The frame stays open until the callback has run; the caller closes it
+     */
+    void detect(F frame, Callback callback);
+
+    interface Callback {
+        void onDetected(List<String> values);
+        void onFailed(Exception e);
+    }
+}
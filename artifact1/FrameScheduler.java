@@ -0,0 +1,155 @@
+package com.frank.barcodehealthapp;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sits between the camera analyzer and a FrameDetector and decides which frames to detect on
+ * - At most maxInFlight detections run at once; frames arriving while all are busy are dropped
+ * - Detector latency is tracked as a moving average, and frames are only dispatched every
+ *   latency / maxInFlight, so a slow detector gets fewer frames instead of a growing backlog
+ * - Every frame is closed exactly once, whether it was skipped, detected on, or failed
+ * Plain Java (frames only need to be AutoCloseable), so it runs on a JVM with a fake detector
+ */
+public final class FrameScheduler<F extends AutoCloseable> {
+
+    /**
+     * Time source, replaceable in tests
+     */
+    public interface Clock {
+        long nanoTime();
+    }
+
+    /**
+     * Receives the values detected in each processed frame
+     */
+    public interface ResultListener {
+        void onFrameResult(List<String> values);
+    }
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    // Weight of the newest latency sample in the moving average, as a shift (1/8)
+    private static final int LATENCY_SMOOTHING_SHIFT = 3;
+
+    private final FrameDetector<F> detector;
+    private final ResultListener listener;
+    private final int maxInFlight;
+    private final Clock clock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong averageLatencyNanos = new AtomicLong();
+    private final AtomicLong lastDispatchNanos = new AtomicLong(Long.MIN_VALUE);
+
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public FrameScheduler(FrameDetector<F> detector, ResultListener listener, int maxInFlight) {
+        this(detector, listener, maxInFlight, SYSTEM_CLOCK);
+    }
+
+    public FrameScheduler(FrameDetector<F> detector, ResultListener listener, int maxInFlight, Clock clock) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be at least 1");
+        this.detector = detector;
+        this.listener = listener;
+        this.maxInFlight = maxInFlight;
+        this.clock = clock;
+    }
+
+    /**
+     * Offers a camera frame; returns true if it was sent to the detector, false if it was skipped (and closed)
+     */
+    public boolean offer(final F frame) {
+        offered.incrementAndGet();
+        final long now = clock.nanoTime();
+
+        if (!shouldDispatch(now) || !reserveSlot()) {
+            close(frame);
+            return false;
+        }
+        lastDispatchNanos.set(now);
+
+        try {
+            detector.detect(frame, new FrameDetector.Callback() {
+                @Override
+                public void onDetected(List<String> values) {
+                    finish(frame, now);
+                    processed.incrementAndGet();
+                    listener.onFrameResult(values);
+                }
+
+                @Override
+                public void onFailed(Exception e) {
+                    finish(frame, now);
+                    failed.incrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            finish(frame, now);
+            failed.incrementAndGet();
+            throw e;
+        }
+        return true;
+    }
+
+    // Paces dispatches to the detector's measured throughput
+    private boolean shouldDispatch(long now) {
+        long last = lastDispatchNanos.get();
+        if (last == Long.MIN_VALUE) return true;
+        return now - last >= averageLatencyNanos.get() / maxInFlight;
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxInFlight) return false;
+            if (inFlight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    private void finish(F frame, long dispatchedAt) {
+        long latency = clock.nanoTime() - dispatchedAt;
+        while (true) {
+            long average = averageLatencyNanos.get();
+            long updated = average == 0 ? latency : average + ((latency - average) >> LATENCY_SMOOTHING_SHIFT);
+            if (averageLatencyNanos.compareAndSet(average, updated)) break;
+        }
+        close(frame);
+        inFlight.decrementAndGet();
+    }
+
+    private static void close(AutoCloseable frame) {
+        try {
+            frame.close();
+        } catch (Exception e) {
+            // Nothing useful to do; the camera recycles the buffer either way
+        }
+    }
+
+    public long averageLatencyNanos() {
+        return averageLatencyNanos.get();
+    }
+
+    public long framesOffered() {
+        return offered.get();
+    }
+
+    public long framesProcessed() {
+        return processed.get();
+    }
+
+    public long framesFailed() {
+        return failed.get();
+    }
+
+    public long framesSkipped() {
+        return offered.get() - processed.get() - failed.get() - inFlight.get();
+    }
+}
@@ -0,0 +1,130 @@
+package com.frank.barcodehealthapp;
+
+/**
+ * Decides when a detected barcode is stable enough to act on, in O(1) per detection and with no
+ * per-frame allocation (replaces keeping a growing List of past detections)
+ *
+ * Each barcode seen recently owns a slot in a fixed ring of slots, found by its hash. A detection
+ * adds one vote; every frame a code is missing takes decayPerFrame votes away (applied lazily the
+ * next time the slot is touched). A code is reported once when it reaches requiredVotes, and can
+ * only be reported again after its votes have fully decayed, i.e. after it left the view.
+ * When all slots are busy the next slot in ring order is reused.
+ *
+ * Not thread-safe; call it from one thread (e.g. the detector's result callbacks)
+ */
+public final class FrameStabilityVoter {
+
+    private static final int DEFAULT_SLOTS = 8;
+
+    private final int requiredVotes;
+    private final int decayPerFrame;
+
+    private final int[] hashes;
+    private final String[] values;
+    private final int[] votes;
+    private final int[] lastFrame;
+    private final boolean[] reported;
+
+    private int frame;
+    private int nextVictim;
+
+    public FrameStabilityVoter(int requiredVotes) {
+        this(requiredVotes, 1, DEFAULT_SLOTS);
+    }
+
+    /**
+     * @param requiredVotes net detections needed before a code is reported
+     * @param decayPerFrame votes lost for each frame the code isn't seen in (0 never forgets)
+     * @param slots         distinct codes tracked at once
+     */
+    public FrameStabilityVoter(int requiredVotes, int decayPerFrame, int slots) {
+        if (requiredVotes < 1 || decayPerFrame < 0 || slots < 1) throw new IllegalArgumentException();
+        this.requiredVotes = requiredVotes;
+        this.decayPerFrame = decayPerFrame;
+        hashes = new int[slots];
+        values = new String[slots];
+        votes = new int[slots];
+        lastFrame = new int[slots];
+        reported = new boolean[slots];
+    }
+
+    /**
+     * Marks the start of a new analyzed frame; call once per frame before its detections
+     */
+    public void nextFrame() {
+        frame++;
+    }
+
+    /**
+     * Records a detection in the current frame
+     * Returns true exactly once per appearance, when the code becomes stable
+     */
+    public boolean vote(String value) {
+        int hash = value.hashCode();
+        int slot = find(hash, value);
+        if (slot == -1) slot = claim(hash, value);
+
+        decay(slot);
+        if (lastFrame[slot] == frame && votes[slot] > 0) return false; // one vote per frame
+        lastFrame[slot] = frame;
+        votes[slot] = Math.min(votes[slot] + 1, requiredVotes);
+
+        if (votes[slot] >= requiredVotes && !reported[slot]) {
+            reported[slot] = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Forgets everything, e.g. when scanning is restarted
+     */
+    public void reset() {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = null;
+            votes[i] = 0;
+            reported[i] = false;
+        }
+    }
+
+    private int find(int hash, String value) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] == hash && values[i] != null && values[i].equals(value)) return i;
+        }
+        return -1;
+    }
+
+    // Takes an empty or fully decayed slot, or else the next one in ring order
+    private int claim(int hash, String value) {
+        int slot = -1;
+        for (int i = 0; i < values.length && slot == -1; i++) {
+            if (values[i] == null) slot = i;
+            else {
+                decay(i);
+                if (votes[i] == 0) slot = i;
+            }
+        }
+        if (slot == -1) {
+            slot = nextVictim;
+            nextVictim = (nextVictim + 1) % values.length;
+        }
+
+        hashes[slot] = hash;
+        values[slot] = value;
+        votes[slot] = 0;
+        lastFrame[slot] = frame;
+        reported[slot] = false;
+        return slot;
+    }
+
+    // Applies the decay owed for frames since the slot was last seen; re-arms it once it hits zero
+    private void decay(int slot) {
+        int missed = frame - lastFrame[slot] - 1;
+        if (missed <= 0 || decayPerFrame == 0) return;
+
+        long lost = (long) missed * decayPerFrame;
+        votes[slot] = lost >= votes[slot] ? 0 : votes[slot] - (int) lost;
+        lastFrame[slot] = frame - 1;
+        if (votes[slot] == 0) reported[slot] = false;
+    }
+}
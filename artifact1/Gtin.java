@@ -0,0 +1,140 @@
+package com.frank.barcodehealthapp;
+
+/**
+ * Barcode canonicalization for product lookups
+ * Every product code (EAN-8, UPC-E, UPC-A, EAN-13, GTIN-14) is validated by its check digit and
+ * reduced to one GTIN-14 value held in a long: UPC-A 036000291452, EAN-13 0036000291452 and
+ * GTIN-14 00036000291452 are all 36000291452. UPC-E is expanded to its UPC-A first.
+ * Misreads fail the check digit and are rejected before they cost a lookup
+ */
+public final class Gtin {
+
+    public static final long INVALID = -1;
+
+    private Gtin() {
+    }
+
+    /**
+     * Parses an EAN-8, UPC-A, EAN-13 or GTIN-14 code; 6-digit codes and 8-digit codes that
+     * aren't valid EAN-8 are tried as UPC-E. Returns INVALID if no reading has a valid check digit
+     */
+    public static long parse(String code) {
+        String digits = code.trim();
+        int length = digits.length();
+        // Only 6/8/12/13/14-digit codes exist; checking the length first keeps parseLong in range
+        if (length != 6 && length != 8 && (length < 12 || length > 14)) return INVALID;
+        if (!isDigits(digits) || Long.parseLong(digits) == 0) return INVALID;
+
+        switch (length) {
+            case 6:
+                return parseUpcE(digits);
+            case 8:
+                if (hasValidCheckDigit(digits)) return Long.parseLong(digits);
+                return parseUpcE(digits);
+            case 12:
+            case 13:
+            case 14:
+                return hasValidCheckDigit(digits) ? Long.parseLong(digits) : INVALID;
+            default:
+                return INVALID;
+        }
+    }
+
+    /**
+     * Parses a UPC-E code: 6 digits, or number system (0/1) + 6 digits + check digit
+     * Returns the GTIN of the equivalent UPC-A, or INVALID
+     */
+    public static long parseUpcE(String code) {
+        String digits = code.trim();
+        if (!isDigits(digits)) return INVALID;
+
+        char numberSystem;
+        String body;
+        if (digits.length() == 6) {
+            numberSystem = '0';
+            body = digits;
+        } else if (digits.length() == 8 && (digits.charAt(0) == '0' || digits.charAt(0) == '1')) {
+            numberSystem = digits.charAt(0);
+            body = digits.substring(1, 7);
+        } else {
+            return INVALID;
+        }
+
+        String upcA = numberSystem + expandUpcE(body);
+        char check = (char) ('0' + checkDigit(upcA, upcA.length()));
+        if (digits.length() == 8 && digits.charAt(7) != check) return INVALID;
+        return Long.parseLong(upcA + check);
+    }
+
+    // The 10 manufacturer and product digits a 6-digit UPC-E body stands for
+    private static String expandUpcE(String d) {
+        switch (d.charAt(5)) {
+            case '0':
+            case '1':
+            case '2':
+                return d.substring(0, 2) + d.charAt(5) + "0000" + d.substring(2, 5);
+            case '3':
+                return d.substring(0, 3) + "00000" + d.substring(3, 5);
+            case '4':
+                return d.substring(0, 4) + "00000" + d.charAt(4);
+            default:
+                return d.substring(0, 5) + "0000" + d.charAt(5);
+        }
+    }
+
+    /**
+     * The code to look a GTIN up by: 8 digits for EAN-8, 13 for UPC/EAN-13 (as OpenFoodFacts stores them), else 14
+     */
+    public static String toCode(long gtin) {
+        if (gtin < 100_000_000L) return pad(gtin, 8);
+        if (gtin < 10_000_000_000_000L) return pad(gtin, 13);
+        return pad(gtin, 14);
+    }
+
+    /**
+     * Canonical lookup key for a scanned value
+     * All-digit values become toCode(parse(value)), or null if they fail validation;
+     * anything else (e.g. a Walmart QR link) is returned trimmed
+     */
+    public static String canonicalize(String value) {
+        String trimmed = value.trim();
+        if (!isDigits(trimmed)) return trimmed;
+        long gtin = parse(trimmed);
+        return gtin == INVALID ? null : toCode(gtin);
+    }
+
+    /**
+     * Mod-10 check digit (weights 3,1 from the right) over the first `length` digits
+     */
+    static int checkDigit(String digits, int length) {
+        int sum = 0;
+        boolean triple = true;
+        for (int i = length - 1; i >= 0; i--) {
+            int digit = digits.charAt(i) - '0';
+            sum += triple ? digit * 3 : digit;
+            triple = !triple;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private static boolean hasValidCheckDigit(String digits) {
+        int last = digits.length() - 1;
+        return digits.charAt(last) - '0' == checkDigit(digits, last);
+    }
+
+    private static boolean isDigits(String s) {
+        if (s.isEmpty()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private static String pad(long value, int width) {
+        String digits = Long.toString(value);
+        StringBuilder padded = new StringBuilder(width);
+        for (int i = digits.length(); i < width; i++) padded.append('0');
+        return padded.append(digits).toString();
+    }
+}
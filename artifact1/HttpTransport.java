@@ -0,0 +1,159 @@
+package com.frank.barcodehealthapp;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Shared HTTP layer for product and Walmart lookups
+ * - Bounded worker pool instead of a new thread per lookup; excess work is rejected, not queued forever
+ * - Keep-alive: every body is read to the end and closed, so HttpURLConnection returns the
+ *   socket (and its TLS session) to the pool for the next request to the same host
+ * - gzip requested explicitly and decoded here
+ * - Connect and read timeouts on every request
+ * - Bodies read in bulk through a per-thread byte buffer, decoded once at the end
+ */
+public final class HttpTransport {
+
+    static final int CONNECT_TIMEOUT_MS = 8000;
+    static final int READ_TIMEOUT_MS = 10000;
+
+    private static final int MAX_THREADS = 4;
+    private static final int MAX_QUEUED = 32;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_DRAIN = 8 * 1024;
+
+    static {
+        // Defaults on Android already, but make the pool size explicit
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", String.valueOf(MAX_THREADS + 1));
+    }
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            MAX_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(MAX_QUEUED),
+            new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "http-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFER_SIZE];
+        }
+    };
+
+    private HttpTransport() {
+    }
+
+    /**
+     * A completed response with its body fully read
+     */
+    public static final class Response {
+        public final int status;
+        public final String url;
+        public final byte[] body;
+
+        Response(int status, String url, byte[] body) {
+            this.status = status;
+            this.url = url;
+            this.body = body;
+        }
+
+        public String bodyAsString() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Pool for network work; execute() throws RejectedExecutionException when it is saturated
+     */
+    public static ExecutorService executor() {
+        return executor;
+    }
+
+    /**
+     * GET with redirects followed; headers are name/value pairs
+     * Error bodies are drained too so the connection can still be reused
+     */
+    public static Response get(String url, String... headers) throws IOException {
+        HttpURLConnection conn = open(url, headers);
+        try {
+            int status = conn.getResponseCode();
+            InputStream raw = status >= 400 ? conn.getErrorStream() : conn.getInputStream();
+            byte[] body = raw == null ? new byte[0] : readBody(decode(conn, raw), conn.getContentLength());
+            return new Response(status, conn.getURL().toString(), body);
+        } catch (IOException e) {
+            conn.disconnect();
+            throw e;
+        }
+    }
+
+    static HttpURLConnection open(String url, String... headers) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setRequestMethod("GET");
+        conn.setInstanceFollowRedirects(true);
+        conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        conn.setReadTimeout(READ_TIMEOUT_MS);
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        for (int i = 0; i + 1 < headers.length; i += 2) conn.setRequestProperty(headers[i], headers[i + 1]);
+        return conn;
+    }
+
+    // Setting Accept-Encoding ourselves turns off transparent decompression, so undo gzip here
+    static InputStream decode(HttpURLConnection conn, InputStream raw) throws IOException {
+        return "gzip".equalsIgnoreCase(conn.getContentEncoding()) ? new GZIPInputStream(raw, BUFFER_SIZE) : raw;
+    }
+
+    /**
+     * Ends a streamed response that may not have been read to the end
+     * A short remainder is drained so the connection can be reused; a long one isn't worth it
+     */
+    static void finish(HttpURLConnection conn, InputStream in) {
+        try {
+            byte[] buffer = buffers.get();
+            int drained = 0;
+            int read;
+            while (drained <= MAX_DRAIN && (read = in.read(buffer)) != -1) drained += read;
+            in.close();
+            if (drained > MAX_DRAIN) conn.disconnect();
+        } catch (IOException e) {
+            conn.disconnect();
+        }
+    }
+
+    private static byte[] readBody(InputStream in, int contentLength) throws IOException {
+        try {
+            byte[] buffer = buffers.get();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(contentLength > 0 ? contentLength : BUFFER_SIZE);
+            int read;
+            while ((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -2,7 +2,6 @@ package com.frank.barcodehealthapp;
 
 import android.content.Context;
 import android.graphics.Color;
-import android.os.Build;
 import android.text.SpannableStringBuilder;
 import android.text.style.ClickableSpan;
 import android.view.View;
@@ -10,20 +9,20 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Handles all data loading and normalization logic related to ingredients
@@ -31,309 +30,371 @@ import java.util.regex.Pattern;
  */
 public class IngredientDataLoader {
 
-    // Stores mappings of alias > canonical ingredient names
-    private static final Map<String, String> aliasMap = new HashMap<>();
+    // Current immutable snapshot of every ingredient asset; readers never lock, reloads swap it whole
+    private static final AtomicReference<IngredientKnowledgeBase> snapshot = new AtomicReference<>();
+
+    // First load, started by warmUp() or the first reader
+    private static FutureTask<IngredientKnowledgeBase> knowledgeBaseTask;
+    private static final List<ReadyListener> readyListeners = new ArrayList<>();
+
+    // Loads and reloads run one at a time, so snapshots are published in the order they were requested
+    private static final ExecutorService loaderExecutor = Executors.newSingleThreadExecutor(loaderThreads("ingredient-loader"));
+
+    // Streams the ingredient file while the loader thread reads the purposes file
+    private static final ExecutorService parseExecutor = Executors.newSingleThreadExecutor(loaderThreads("ingredient-parser"));
+
+    private static ThreadFactory loaderThreads(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        };
+    }
 
     /**
-     * Loads alias map from assets if it hasn't been initialized.
+     * Notified once the knowledge base is ready, on the loader thread
      */
-    public static void setAliasMap(Context context) {
-        if (aliasMap.isEmpty()) {
-            aliasMap.putAll(loadAliasMap(context));
-        }
+    public interface ReadyListener {
+        void onReady(IngredientKnowledgeBase knowledgeBase);
     }
 
     /**
-     * Normalizes an ingredient name into a standardized format for comparison
-     * - Lowercases, strips non-alphanumeric characters
-     * - Substitutes known aliases
-     * - Handles vitamin naming (e.g., B12 > vitaminb12)
-     * - Handles plural-to-singular fallback
+     * Starts loading the knowledge base in the background, if it isn't loading or loaded already.
+     * Call this early (e.g. from Activity.onCreate) so the first scan doesn't pay for parsing.
+     * Prefers the precompiled, memory-mapped dataset and falls back to parsing the JSON assets,
+     * with the ingredient and purpose files parsed in parallel; a JSON file that can't be read is left out.
+     * If nothing can be read, callers get an empty knowledge base and the next call tries again.
      */
-    public static String normalizeName(String name, Context context) {
-        setAliasMap(context);
-        if (name == null) return "";
-        String base = name.toLowerCase().replaceAll("[^a-z0-9]", "");
-
-        String alias = aliasMap.get(base);
-        if (alias != null) return alias.replaceAll("[^a-z0-9]", "");
-
-        // Try singular fallback
-        if (base.endsWith("s")) {
-            alias = aliasMap.get(base.substring(0, base.length() - 1));
-            if (alias != null) return alias.replaceAll("[^a-z0-9]", "");
+    public static synchronized Future<IngredientKnowledgeBase> warmUp(Context context) {
+        if (knowledgeBaseTask == null) {
+            final Context appContext = applicationContext(context);
+            knowledgeBaseTask = new FutureTask<IngredientKnowledgeBase>(new Callable<IngredientKnowledgeBase>() {
+                @Override
+                public IngredientKnowledgeBase call() {
+                    try {
+                        // A reload may already have published newer data
+                        snapshot.compareAndSet(null, loadFromAssets(appContext));
+                    } catch (Exception e) {
+                        // Not published, so EMPTY isn't kept; see done()
+                        e.printStackTrace();
+                    }
+                    IngredientKnowledgeBase current = snapshot.get();
+                    return current != null ? current : IngredientKnowledgeBase.EMPTY;
+                }
+            }) {
+                @Override
+                protected void done() {
+                    notifyReady(this);
+                    // Nothing loaded: forget this attempt so the next warmUp()/getKnowledgeBase() retries
+                    synchronized (IngredientDataLoader.class) {
+                        if (snapshot.get() == null && knowledgeBaseTask == this) knowledgeBaseTask = null;
+                    }
+                }
+            };
+            loaderExecutor.execute(knowledgeBaseTask);
         }
+        return knowledgeBaseTask;
+    }
 
-        // Vitamin fallbacks
-        if (base.matches("^b\\d{1,2}$")) {
-            alias = aliasMap.get("vitamin" + base);
-            if (alias != null) return alias.replaceAll("[^a-z0-9]", "");
+    /**
+     * Like warmUp(), and calls the listener once the knowledge base is ready.
+     * If it is already loaded the listener is called straight away on this thread.
+     */
+    public static void warmUp(Context context, ReadyListener listener) {
+        IngredientKnowledgeBase current = snapshot.get();
+        if (current == null) {
+            synchronized (IngredientDataLoader.class) {
+                Future<IngredientKnowledgeBase> task = warmUp(context);
+                if (!task.isDone()) {
+                    readyListeners.add(listener);
+                    return;
+                }
+            }
+            current = getKnowledgeBase(context);
         }
+        listener.onReady(current);
+    }
 
-        if (base.matches("^vitb\\d{1,2}$")) {
-            alias = aliasMap.get("vitamin" + base.substring(3));
-            if (alias != null) return alias.replaceAll("[^a-z0-9]", "");
-        }
+    /**
+     * True once a knowledge base has been published, so getKnowledgeBase() won't block
+     */
+    public static boolean isKnowledgeBaseReady() {
+        return snapshot.get() != null;
+    }
 
-        if (base.matches("^vitaminb\\d{1,2}$")) return base;
+    /**
+     * Returns the current knowledge base snapshot without locking.
+     * Only the very first call(s) wait, for the initial load; prefer warmUp() with a listener on the main thread.
+     * Callers should hold on to the returned snapshot for one operation rather than re-reading it,
+     * so a reload can't mix old and new data mid-render.
+     */
+    public static IngredientKnowledgeBase getKnowledgeBase(Context context) {
+        IngredientKnowledgeBase current = snapshot.get();
+        if (current != null) return current;
+        return awaitKnowledgeBase(warmUp(context));
+    }
 
-        return base;
+    /**
+     * Rebuilds the knowledge base from the app assets in the background and swaps it in.
+     * Readers keep using the previous snapshot until the new one is complete.
+     * If loading fails the previous snapshot stays and the future completes exceptionally.
+     */
+    public static Future<IngredientKnowledgeBase> reload(Context context) {
+        final Context appContext = applicationContext(context);
+        return loaderExecutor.submit(new Callable<IngredientKnowledgeBase>() {
+            @Override
+            public IngredientKnowledgeBase call() throws Exception {
+                return publish(loadFromAssets(appContext));
+            }
+        });
     }
 
     /**
-     * Loads the ingredient_purposes.json asset and builds
-     * - A map of normalized ingredient > [types]
-     * - A map of type > purpose description
+     * Rebuilds the knowledge base from updated JSON (e.g. alias files downloaded to internal storage)
+     * and swaps it in, same as reload(Context). The source must provide all three asset names.
      */
-    public static Map<String, List<String>> loadIngredientPurposeMap(Context context, Map<String, String> typePurposeMap) {
-        setAliasMap(context);
-        Map<String, List<String>> map = new HashMap<>();
+    public static Future<IngredientKnowledgeBase> reload(final IngredientKnowledgeBase.AssetSource source) {
+        return loaderExecutor.submit(new Callable<IngredientKnowledgeBase>() {
+            @Override
+            public IngredientKnowledgeBase call() throws Exception {
+                return publish(IngredientKnowledgeBase.loadConcurrently(source, parseExecutor));
+            }
+        });
+    }
+
+    private static IngredientKnowledgeBase publish(IngredientKnowledgeBase loaded) {
+        snapshot.set(loaded);
+        return loaded;
+    }
 
-        try (InputStream is = context.getAssets().open("ingredient_purposes.json")) {
-            String jsonStr = Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
-                    ? new String(is.readAllBytes(), StandardCharsets.UTF_8)
-                    : null;
+    private static Context applicationContext(Context context) {
+        return context.getApplicationContext() != null ? context.getApplicationContext() : context;
+    }
 
-            JSONArray array = new JSONArray(jsonStr);
-            for (int i = 0; i < array.length(); i++) {
-                JSONObject item = array.getJSONObject(i);
-                String type = item.getString("Type").trim();
-                String purpose = item.optString("Purpose", "").trim();
+    private static IngredientKnowledgeBase loadFromAssets(final Context context) throws IOException, InterruptedException {
+        try {
+            return IngredientKnowledgeBase.fromStore(MappedIngredientDataset.map(context));
+        } catch (IOException e) {
+            // No usable compiled dataset in this build, parse the JSON assets instead
+        }
 
-                typePurposeMap.put(type.toLowerCase(), purpose);
+        return IngredientKnowledgeBase.loadAvailable(new IngredientKnowledgeBase.AssetSource() {
+            @Override
+            public InputStream open(String name) throws IOException {
+                return context.getAssets().open(name);
+            }
+        }, parseExecutor);
+    }
 
-                // Map each ingredient to this type
-                JSONArray ingredients = item.getJSONArray("Ingredients");
-                for (int j = 0; j < ingredients.length(); j++) {
-                    String normalized = normalizeName(ingredients.getString(j), context);
-                    map.computeIfAbsent(normalized, k -> new ArrayList<>()).add(type);
+    private static IngredientKnowledgeBase awaitKnowledgeBase(Future<IngredientKnowledgeBase> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    // Keep waiting, the caller needs the data; restore the flag afterwards
+                    interrupted = true;
                 }
             }
-        } catch (Exception e) {
+        } catch (ExecutionException e) {
             e.printStackTrace();
+            return IngredientKnowledgeBase.EMPTY;
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void notifyReady(Future<IngredientKnowledgeBase> task) {
+        List<ReadyListener> listeners;
+        synchronized (IngredientDataLoader.class) {
+            listeners = new ArrayList<>(readyListeners);
+            readyListeners.clear();
         }
+        if (listeners.isEmpty()) return;
+
+        IngredientKnowledgeBase kb = awaitKnowledgeBase(task);
+        for (ReadyListener listener : listeners) listener.onReady(kb);
+    }
+
+    /**
+     * Loads alias map from assets if it hasn't been initialized.
+     * Aliases now live in the knowledge base, so this just ensures it is loaded.
+     */
+    public static void setAliasMap(Context context) {
+        getKnowledgeBase(context);
+    }
 
+    /**
+     * Normalizes an ingredient name into a standardized format for comparison
+     * - Lowercases, strips non-alphanumeric characters
+     * - Substitutes known aliases
+     * - Handles vitamin naming (e.g., B12 > vitaminb12)
+     * - Handles plural-to-singular fallback
+     * Results are memoized per knowledge base in a bounded LRU keyed by the raw name.
+     */
+    public static String normalizeName(String name, Context context) {
+        return getKnowledgeBase(context).normalize(name);
+    }
+
+    /**
+     * Builds a map of normalized ingredient > [types] and fills typePurposeMap with type > purpose description.
+     * @deprecated Use {@link #getKnowledgeBase(Context)} and {@link IngredientKnowledgeBase#getTypes(String)}
+     */
+    @Deprecated
+    public static Map<String, List<String>> loadIngredientPurposeMap(Context context, Map<String, String> typePurposeMap) {
+        IngredientKnowledgeBase kb = getKnowledgeBase(context);
+        typePurposeMap.putAll(kb.getTypePurposeMap());
+
+        Map<String, List<String>> map = new HashMap<>();
+        for (String key : kb.getTypedKeys()) map.put(key, kb.getTypes(key));
         return map;
     }
 
     /**
-     * Loads raw alias mappings from ingredient_aliases.json asset.
-     * Converts both key and value to lowercase and strips punctuation for consistency.
+     * Returns the alias > canonical name mappings.
+     * @deprecated Duplicate of {@link #loadAliasMap(Context)}
      */
+    @Deprecated
     public static Map<String, String> loadIngredientAliases(Context context) {
-        Map<String, String> aliasMap = new HashMap<>();
-        try {
-            InputStream is = context.getAssets().open("ingredient_aliases.json");
-            byte[] buffer = new byte[is.available()];
-            is.read(buffer);
-            is.close();
-
-            JSONObject obj = new JSONObject(new String(buffer, StandardCharsets.UTF_8));
-            Iterator<String> keys = obj.keys();
-            while (keys.hasNext()) {
-                String alias = keys.next();
-                aliasMap.put(
-                        alias.toLowerCase().replaceAll("[^a-z0-9]", ""),
-                        obj.getString(alias).toLowerCase().replaceAll("[^a-z0-9]", "")
-                );
-            }
-        } catch (IOException | JSONException e) {
-            e.printStackTrace();
-        }
-        return aliasMap;
+        return loadAliasMap(context);
     }
 
     /**
-     * Loads ingredient classifications and raw descriptions from upc_ingredients.json.
-     * Populates both a classification map and a map of full JSON objects.
+     * Builds a classification map and a map of description objects keyed by normalized ingredient.
+     * @deprecated Use {@link #getKnowledgeBase(Context)}, which keeps one shared copy of this data
      */
+    @Deprecated
     public static Map<String, String> loadIngredientClassifications(Context context, Map<String, JSONObject> jsonObjects) {
-        setAliasMap(context);
+        IngredientKnowledgeBase kb = getKnowledgeBase(context);
         Map<String, String> map = new HashMap<>();
 
-        try (InputStream is = context.getAssets().open("upc_ingredients.json")) {
-            String jsonStr = Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
-                    ? new String(is.readAllBytes(), StandardCharsets.UTF_8)
-                    : null;
-
-            JSONArray array = new JSONArray(jsonStr);
-            for (int i = 0; i < array.length(); i++) {
-                JSONObject item = array.getJSONObject(i);
-                String normalized = normalizeName(item.getString("ingredient"), context);
-                String classification = item.getString("classification");
-
-                map.put(normalized, classification);
-                jsonObjects.put(normalized, item);
+        for (String key : kb.getRecordKeys()) {
+            String classification = kb.getClassification(key);
+            map.put(key, classification);
+            try {
+                JSONObject item = new JSONObject();
+                item.put("classification", classification);
+                item.putOpt("description", kb.getDescription(key));
+                jsonObjects.put(key, item);
+            } catch (JSONException e) {
+                e.printStackTrace();
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
         return map;
     }
 
     /**
-     * Loads alias mappings using newer JSON parser logic.
-     * This is the core loader used internally by setAliasMap().
+     * Returns a copy of the alias > canonical name mappings.
+     * @deprecated Use {@link #getKnowledgeBase(Context)} and {@link IngredientKnowledgeBase#getAliasMap()}
      */
+    @Deprecated
     public static Map<String, String> loadAliasMap(Context context) {
-        Map<String, String> aliasMap = new HashMap<>();
-        try (InputStream is = context.getAssets().open("ingredient_aliases.json")) {
-            String jsonStr = Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
-                    ? new String(is.readAllBytes(), StandardCharsets.UTF_8)
-                    : null;
-
-            JSONObject obj = new JSONObject(jsonStr);
-            for (Iterator<String> it = obj.keys(); it.hasNext(); ) {
-                String key = it.next();
-                String value = obj.getString(key);
-                aliasMap.put(
-                        key.toLowerCase().replaceAll("[^a-z0-9]", ""),
-                        value.toLowerCase().replaceAll("[^a-z0-9]", "")
-                );
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return aliasMap;
+        return new HashMap<>(getKnowledgeBase(context).getAliasMap());
     }
 
     /**
      * Cleans and splits an ingredient list into a unique list of ingredients.
      * - Removes redundant spaces and trailing punctuation
      * - Attempts to skip prefaces like "Advice:"
-     * - Flattens one level of parenthetical ingredients
+     * - Flattens parenthetical and bracketed ingredients at any nesting depth
+     * See IngredientTokenizer for the single-pass lexer and per-token nesting depth.
      */
     public static List<String> extractFlattenedIngredients(String ingredientsText) {
-        List<String> list = new ArrayList<>();
-        if (ingredientsText == null) return list;
-
-        String cleanText = ingredientsText.trim().replaceAll("\\.+$", "").replaceAll(" +", " ");
-
-        // Remove common preambles like "Advice: ..." if found
-        int idx = cleanText.toLowerCase().lastIndexOf("advice");
-        if (idx != -1) {
-            cleanText = cleanText.substring(idx + "advice".length()).replaceFirst("[:.\\s]*", "");
-        } else {
-            int lastPeriod = cleanText.lastIndexOf('.');
-            if (lastPeriod != -1 && lastPeriod < cleanText.length() - 1) {
-                String afterPeriod = cleanText.substring(lastPeriod + 1).trim();
-                if (afterPeriod.contains(",")) cleanText = afterPeriod;
-            }
-        }
-
-        // Split by commas and flatten single parentheses
-        String[] rawParts = cleanText.split(",");
-        Set<String> seen = new LinkedHashSet<>();
-        for (String part : rawParts) {
-            String trimmed = part.trim().replaceAll("(?i)^and\\s+", "");
-            if (trimmed.isEmpty()) continue;
-
-            int open = trimmed.indexOf('(');
-            int close = trimmed.lastIndexOf(')');
-            if (open >= 0 && close == trimmed.length() - 1) {
-                String main = trimmed.substring(0, open).trim().replaceAll("(?i)^and\\s+", "");
-                if (!main.isEmpty()) seen.add(main);
-                String inside = trimmed.substring(open + 1, close);
-                for (String sub : inside.split(",")) {
-                    String s = sub.trim().replaceAll("(?i)^and\\s+", "");
-                    if (!s.isEmpty()) seen.add(s);
-                }
-            } else {
-                seen.add(trimmed);
-            }
-        }
-
-        return new ArrayList<>(seen);
+        return IngredientTokenizer.tokenizeNames(ingredientsText);
     }
 
     /**
      * Attempts to find the closest key match for a given input string using:
      * - Substring or prefix/suffix containment
      * - Levenshtein distance ≤ 4
+     * Both tiers are answered by the prebuilt index, in time that doesn't grow with the key count.
+     * Prefix/suffix containment is a special case of substring containment, so one
+     * containment query covers both of the original scans.
+     */
+    public static String getClosestKey(String norm, IngredientKeyIndex index) {
+        String contained = index.firstContainmentMatch(norm);
+        if (contained != null) return contained;
+
+        return index.nearestWithin(norm, 4);
+    }
+
+    /**
+     * Same tiers as getClosestKey(String, IngredientKeyIndex), scanning the keys directly
+     * @deprecated Build an IngredientKeyIndex once for the key set and hold on to it
      */
+    @Deprecated
     public static String getClosestKey(String norm, Set<String> keys) {
         for (String key : keys) {
             if (key.contains(norm) || norm.contains(key)) return key;
         }
-        for (String key : keys) {
-            if (key.startsWith(norm) || key.endsWith(norm) || norm.startsWith(key) || norm.endsWith(key)) return key;
-        }
 
-        int minDist = Integer.MAX_VALUE;
         String best = null;
+        int bestDist = 4;
         for (String key : keys) {
-            int dist = levenshtein(norm, key);
-            if (dist < minDist) {
-                minDist = dist;
+            int dist = EditDistance.bounded(norm, key, bestDist);
+            if (dist < bestDist || (best == null && dist == bestDist)) {
+                bestDist = dist;
                 best = key;
             }
         }
-
-        return minDist <= 4 ? best : null;
+        return best;
     }
 
     /**
      * Computes the Levenshtein distance between two strings.
      * Used to determine "closeness" for fuzzy fallback matching.
+     * Delegates to the bit-parallel kernel in EditDistance.
      */
     public static int levenshtein(String s1, String s2) {
-        int[] costs = new int[s2.length() + 1];
-        for (int j = 0; j < costs.length; j++) costs[j] = j;
-
-        for (int i = 1; i <= s1.length(); i++) {
-            costs[0] = i;
-            int nw = i - 1;
-            for (int j = 1; j <= s2.length(); j++) {
-                int cj = Math.min(1 + Math.min(costs[j], costs[j - 1]),
-                        s1.charAt(i - 1) == s2.charAt(j - 1) ? nw : nw + 1);
-                nw = costs[j];
-                costs[j] = cj;
-            }
-        }
+        return EditDistance.distance(s1, s2);
+    }
 
-        return costs[s2.length()];
+    /**
+     * Computes the Levenshtein distance, stopping early once it exceeds maxDistance.
+     * Returns maxDistance + 1 in that case.
+     */
+    public static int levenshtein(String s1, String s2, int maxDistance) {
+        return EditDistance.bounded(s1, s2, maxDistance);
     }
 
     public static int levenshteinDistance(String a, String b) {
-        return levenshtein(a, b);
+        return EditDistance.distance(a, b);
     }
 
     /**
      * Attempts to retrieve a readable description for the given ingredient.
      * Tries exact match, variations, fuzzy matching, and closest approximation
+     * @deprecated Fuzzy tiers search the knowledge base's key index, so jsonObjects must be the map
+     * filled by {@link #loadIngredientClassifications}; use {@link #getIngredientDescription(String, IngredientKnowledgeBase)}
      */
+    @Deprecated
     public static String getIngredientDescription(String ingredient, Map<String, JSONObject> jsonObjects, Context context) {
         String norm = normalizeName(ingredient, context);
         JSONObject obj = jsonObjects.get(norm);
         if (obj != null) return obj.optString("description", null);
 
-        // Handle vitamin shorthand fallback
-        if (norm.matches("^(vitb|vitaminb)[0-9]{1,2}$")) {
-            obj = jsonObjects.get("vitaminb" + norm.replaceAll("[^0-9]", ""));
-            if (obj != null) return obj.optString("description", null);
-        }
-        if (norm.matches("^b[0-9]{1,2}$")) {
-            obj = jsonObjects.get("vitamin" + norm);
+        // Handle vitamin shorthand fallback (b12 / vitb12 / vitaminb12)
+        int vitaminDigits = IngredientKnowledgeBase.vitaminBNumberOffset(norm);
+        if (vitaminDigits != -1) {
+            obj = jsonObjects.get("vitaminb" + norm.substring(vitaminDigits));
             if (obj != null) return obj.optString("description", null);
         }
 
-        String closest = getClosestKey(norm, jsonObjects.keySet());
+        IngredientKeyIndex index = getKnowledgeBase(context).getKeyIndex();
+        String closest = getClosestKey(norm, index);
         if (closest != null) {
             obj = jsonObjects.get(closest);
             if (obj != null) return obj.optString("description", null);
         }
 
         // Absolute fallback: find closest Levenshtein match
-        int minDist = Integer.MAX_VALUE;
-        String absoluteClosest = null;
-        for (String key : jsonObjects.keySet()) {
-            int dist = levenshtein(norm, key);
-            if (dist < minDist) {
-                minDist = dist;
-                absoluteClosest = key;
-            }
-        }
+        String absoluteClosest = index.nearest(norm);
         if (absoluteClosest != null) {
             obj = jsonObjects.get(absoluteClosest);
             if (obj != null) return obj.optString("description", null);
@@ -342,10 +403,21 @@ public class IngredientDataLoader {
         return null;
     }
 
+    /**
+     * Attempts to retrieve a readable description for the given ingredient from the knowledge base.
+     * Tries exact match, variations, fuzzy matching, and closest approximation
+     */
+    public static String getIngredientDescription(String ingredient, IngredientKnowledgeBase kb) {
+        return kb.resolve(ingredient).description;
+    }
+
     /**
      * Returns a color corresponding to the ingredient’s classification.
      * Flagged ingredients override this and are always shown in red.
+     * @deprecated Fuzzy tiers search the knowledge base's key index, so classificationMap must be the map
+     * returned by {@link #loadIngredientClassifications}; use {@link #getColorForIngredient(String, IngredientKnowledgeBase, Context)}
      */
+    @Deprecated
     public static int getColorForIngredient(String ingredient, Map<String, String> classificationMap, Context context) {
         String normalized = normalizeName(ingredient, context);
 
@@ -354,47 +426,47 @@ public class IngredientDataLoader {
         }
 
         String classification = classificationMap.get(normalized);
+        if (classification != null) return IngredientResolution.colorForClassification(classification);
 
         // Fallback: try substring matches if exact classification is missing
-        if (classification == null) {
-            for (Map.Entry<String, String> entry : classificationMap.entrySet()) {
-                if (normalized.contains(entry.getKey()) || entry.getKey().contains(normalized)) {
-                    classification = entry.getValue();
-                    break;
-                }
-            }
-        }
+        IngredientKeyIndex index = getKnowledgeBase(context).getKeyIndex();
+        String contained = index.firstContainmentMatch(normalized);
+        if (contained != null) classification = classificationMap.get(contained);
 
         // Final fallback using closest Levenshtein match
         if (classification == null && !classificationMap.isEmpty()) {
-            int minDist = Integer.MAX_VALUE;
-            String absoluteClosest = null;
-            for (String key : classificationMap.keySet()) {
-                int dist = levenshtein(normalized, key);
-                if (dist < minDist) {
-                    minDist = dist;
-                    absoluteClosest = key;
-                }
-            }
+            String absoluteClosest = index.nearest(normalized);
             if (absoluteClosest != null) {
                 classification = classificationMap.get(absoluteClosest);
             }
         }
 
-        if (classification == null) return Color.DKGRAY;
+        return IngredientResolution.colorForClassification(classification);
+    }
+
+    /**
+     * Returns a color corresponding to the ingredient’s classification in the knowledge base.
+     * Flagged ingredients override this and are always shown in red.
+     */
+    public static int getColorForIngredient(String ingredient, IngredientKnowledgeBase kb, Context context) {
+        IngredientResolution resolution = kb.resolve(ingredient);
 
-        switch (classification.trim().toLowerCase()) {
-            case "natural": return Color.rgb(0, 128, 0);
-            case "artificial": return Color.rgb(255, 140, 0);
-            case "both": return Color.MAGENTA;
-            default: return Color.GRAY;
+        if (FlaggedIngredientManager.isFlagged(context, resolution.key)) {
+            return Color.RED;
         }
+
+        return resolution.color;
     }
 
     /**
      * Builds a styled SpannableStringBuilder that includes ingredient name, types,
      * and colored clickable spans for use in the product info display
+     * Types come from the knowledge base's resolution cache, so toggling detailed mode or
+     * expanding a row re-renders without any fuzzy matching
+     * @deprecated The maps are only forwarded to InterfaceManager; types are read from
+     * {@link #getKnowledgeBase(Context)}, which the loaders that built these maps copy from
      */
+    @Deprecated
     public static SpannableStringBuilder formatIngredientsText(Context context,
                                                                String name, String brand, String ingredientsText,
                                                                boolean isDetailedMode, TextView productInfoText,
@@ -402,6 +474,7 @@ public class IngredientDataLoader {
                                                                Map<String, String> typePurposeMap,
                                                                Map<String, JSONObject> ingredientJsonObjects,
                                                                Map<String, String> ingredientClassificationMap) {
+        IngredientKnowledgeBase knowledgeBase = getKnowledgeBase(context);
         SpannableStringBuilder builder = new SpannableStringBuilder();
         builder.append(name).append(" (").append(brand).append(")\n\n");
 
@@ -409,8 +482,7 @@ public class IngredientDataLoader {
 
         for (int i = 0; i < ingredients.size(); i++) {
             String raw = ingredients.get(i);
-            String key = normalizeName(raw, context);
-            List<String> types = ingredientPurposeMap.getOrDefault(key, new ArrayList<>());
+            List<String> types = knowledgeBase.resolve(raw).types;
             boolean shouldTruncate = types.size() > 3;
             List<String> shown = types.subList(0, Math.min(3, types.size()));
 
@@ -455,57 +527,18 @@ public class IngredientDataLoader {
     }
 
     /**
-     * Exposes the internal alias map so it's initialized before use
+     * Exposes the alias map so it's initialized before use
      */
     public static Map<String, String> getAliasMap(Context context) {
-        setAliasMap(context);
-        return aliasMap;
+        return getKnowledgeBase(context).getAliasMap();
     }
 
     /**
      * Extracts UPC code from final Walmart URL (after following redirects)
+     * See WalmartQrResolver; pass a Context there to also cache resolved links across restarts
      */
     public static String walmartQRLookup(String walmartUrl) {
-        // Make sure URL is fully qualified (scanned url doesn't contain http prefix by default)
-        String fullUrl = walmartUrl.startsWith("http") ? walmartUrl : "https://" + walmartUrl;
-
-        try {
-            // Follow the link to get the full Walmart product URL via redirects
-            HttpURLConnection conn = (HttpURLConnection) new URL(fullUrl).openConnection();
-            conn.setInstanceFollowRedirects(true);
-            conn.setRequestMethod("GET");
-            conn.connect();
-
-            // After redirects, get the actual URL
-            String redirectedUrl = conn.getURL().toString();
-
-            // Fetch the contents from the redirected URL (the Walmart product page)
-            HttpURLConnection prodConn = (HttpURLConnection) new URL(redirectedUrl).openConnection();
-            prodConn.setRequestMethod("GET");
-            prodConn.setRequestProperty("User-Agent", "Mozilla/5.0");
-            prodConn.connect();
-
-            // Reads and stores contents
-            BufferedReader reader = new BufferedReader(new InputStreamReader(prodConn.getInputStream()));
-            StringBuilder html = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) html.append(line);
-            reader.close();
-
-            // Find the GTIN (Gloabal Trade Item Number) code
-            String htmlContent = html.toString();
-            java.util.regex.Matcher matcher = java.util.regex.Pattern
-                    .compile("\"gtin13\"\\s*:\\s*\"(\\d{12,14})\"")
-                    .matcher(htmlContent);
-
-            if (matcher.find()) {
-                // Return GTIN (UPC) code
-                return matcher.group(1);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return null; // Not found or error
+        return WalmartQrResolver.resolve(walmartUrl);
     }
 
 }
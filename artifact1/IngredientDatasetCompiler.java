@@ -0,0 +1,235 @@
+package com.frank.barcodehealthapp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Build-time compiler from the JSON ingredient assets to the binary dataset read by MappedIngredientDataset
+ * Runs on the host JVM (e.g. from a Gradle task before mergeAssets):
+ *
+ *   java IngredientDatasetCompiler ingredient_aliases.json upc_ingredients.json ingredient_purposes.json ingredients.ikb
+ *
+ * Names are normalized with the same IngredientKnowledgeBase builder the app uses, so the
+ * compiled keys, alias resolution and record order are identical to loading the JSON on device.
+ * android.util.JsonReader isn't available on the host, so the assets are read with org.json here
+ */
+public final class IngredientDatasetCompiler {
+
+    private IngredientDatasetCompiler() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 4) {
+            System.err.println("Usage: IngredientDatasetCompiler <aliases.json> <ingredients.json> <purposes.json> <out.ikb>");
+            System.exit(2);
+        }
+
+        IngredientKnowledgeBase kb;
+        try (InputStream aliases = new FileInputStream(args[0]);
+             InputStream ingredients = new FileInputStream(args[1]);
+             InputStream purposes = new FileInputStream(args[2])) {
+            kb = loadHost(aliases, ingredients, purposes);
+        }
+
+        try (OutputStream out = new FileOutputStream(args[3])) {
+            compile(kb.store(), out);
+        }
+    }
+
+    // Same entry rules as IngredientKnowledgeBase.load, using host-side org.json
+    private static IngredientKnowledgeBase loadHost(InputStream aliasJson, InputStream ingredientJson,
+                                                    InputStream purposeJson) throws IOException, JSONException {
+        IngredientKnowledgeBase.Builder builder = new IngredientKnowledgeBase.Builder();
+
+        JSONObject aliases = new JSONObject(readAll(aliasJson));
+        for (Iterator<String> it = aliases.keys(); it.hasNext(); ) {
+            String alias = it.next();
+            String canonical = aliases.optString(alias, null);
+            if (canonical != null) builder.addAlias(alias, canonical);
+        }
+
+        JSONArray ingredients = new JSONArray(readAll(ingredientJson));
+        for (int i = 0; i < ingredients.length(); i++) {
+            JSONObject item = ingredients.getJSONObject(i);
+            String ingredient = item.optString("ingredient", null);
+            String classification = item.optString("classification", null);
+            if (ingredient != null && classification != null) {
+                builder.addRecord(ingredient, classification, item.optString("description", null));
+            }
+        }
+
+        JSONArray purposes = new JSONArray(readAll(purposeJson));
+        for (int i = 0; i < purposes.length(); i++) {
+            JSONObject item = purposes.getJSONObject(i);
+            String type = item.optString("Type", null);
+            if (type == null) continue;
+            type = type.trim();
+            builder.addType(type, item.optString("Purpose", "").trim());
+
+            JSONArray members = item.optJSONArray("Ingredients");
+            if (members == null) continue;
+            for (int j = 0; j < members.length(); j++) builder.addTypeMember(type, members.getString(j));
+        }
+
+        return builder.build();
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the store in the MappedIngredientDataset layout
+     */
+    static void compile(IngredientStore store, OutputStream target) throws IOException {
+        StringPool pool = new StringPool();
+
+        // Keys sorted so the device can binary-search them; ids are re-assigned in sorted order
+        int n = store.size();
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> store.keyAt(a).compareTo(store.keyAt(b)));
+        int[] sortedId = new int[n];
+        for (int i = 0; i < n; i++) sortedId[order[i]] = i;
+
+        ByteArrayOutputStream keysBytes = new ByteArrayOutputStream();
+        DataOutputStream keys = new DataOutputStream(keysBytes);
+        ByteArrayOutputStream typeRefBytes = new ByteArrayOutputStream();
+        DataOutputStream typeRefs = new DataOutputStream(typeRefBytes);
+        int typeRefCount = 0;
+        for (int i = 0; i < n; i++) {
+            int id = order[i];
+            pool.writeRef(keys, requireAscii(store.keyAt(id)));
+            pool.writeRef(keys, store.classificationAt(id));
+            pool.writeRef(keys, store.descriptionAt(id));
+
+            List<String> types = store.typesAt(id);
+            keys.writeInt(typeRefCount);
+            keys.writeInt(types.size());
+            for (String type : types) pool.writeRef(typeRefs, type);
+            typeRefCount += types.size();
+        }
+
+        byte[] aliases = sortedPairs(store.aliases(), pool);
+        byte[] typePurposes = sortedPairs(store.typePurposes(), pool);
+
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream records = new DataOutputStream(recordBytes);
+        int recordCount = 0;
+        for (String key : store.recordKeys()) {
+            records.writeInt(sortedId[store.idOf(key)]);
+            recordCount++;
+        }
+
+        byte[] strings = pool.bytes();
+        int keysOffset = MappedIngredientDataset.HEADER_SIZE;
+        int aliasesOffset = keysOffset + keysBytes.size();
+        int typePurposesOffset = aliasesOffset + aliases.length;
+        int typeRefsOffset = typePurposesOffset + typePurposes.length;
+        int recordOrderOffset = typeRefsOffset + typeRefBytes.size();
+        int stringsOffset = recordOrderOffset + recordBytes.size();
+
+        // Buffered whole so the checksum slot can be filled in once the body is written
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(stringsOffset + strings.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MappedIngredientDataset.MAGIC);
+        out.writeInt(MappedIngredientDataset.VERSION);
+        out.writeInt(n);
+        out.writeInt(aliases.length / MappedIngredientDataset.PAIR_ENTRY_SIZE);
+        out.writeInt(typePurposes.length / MappedIngredientDataset.PAIR_ENTRY_SIZE);
+        out.writeInt(recordCount);
+        out.writeInt(keysOffset);
+        out.writeInt(aliasesOffset);
+        out.writeInt(typePurposesOffset);
+        out.writeInt(typeRefsOffset);
+        out.writeInt(recordOrderOffset);
+        out.writeInt(stringsOffset);
+        out.writeInt(strings.length);
+        out.writeInt(0);
+        keysBytes.writeTo(out);
+        out.write(aliases);
+        out.write(typePurposes);
+        typeRefBytes.writeTo(out);
+        recordBytes.writeTo(out);
+        out.write(strings);
+        out.flush();
+
+        ByteBuffer dataset = ByteBuffer.wrap(bytes.toByteArray());
+        dataset.putInt(MappedIngredientDataset.CHECKSUM_OFFSET, MappedIngredientDataset.checksum(dataset));
+        target.write(dataset.array());
+        target.flush();
+    }
+
+    // Writes (key ref, value ref) pairs sorted by key
+    private static byte[] sortedPairs(Map<String, String> map, StringPool pool) throws IOException {
+        List<String> keys = new ArrayList<>(map.keySet());
+        Collections.sort(keys);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (String key : keys) {
+            pool.writeRef(out, requireAscii(key));
+            pool.writeRef(out, map.get(key));
+        }
+        return bytes.toByteArray();
+    }
+
+    // Sorted columns are compared byte-by-byte against Java chars on device, which only agrees for ASCII
+    private static String requireAscii(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) >= 128) throw new IllegalArgumentException("Non-ASCII sort key: " + key);
+        }
+        return key;
+    }
+
+    /**
+     * De-duplicated UTF-8 string pool; each distinct string is stored once
+     */
+    private static final class StringPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final Map<String, int[]> refs = new HashMap<>();
+
+        void writeRef(DataOutputStream out, String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                out.writeInt(0);
+                return;
+            }
+            int[] ref = refs.get(value);
+            if (ref == null) {
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                ref = new int[]{bytes.size(), encoded.length};
+                bytes.write(encoded, 0, encoded.length);
+                refs.put(value, ref);
+            }
+            out.writeInt(ref[0]);
+            out.writeInt(ref[1]);
+        }
+
+        byte[] bytes() {
+            return bytes.toByteArray();
+        }
+    }
+}
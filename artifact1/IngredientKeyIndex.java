@@ -0,0 +1,198 @@
+package com.frank.barcodehealthapp;
+
+import java.util.Collection;
+
+/**
+ * Prebuilt lookup index over a fixed ingredient key vocabulary
+ * - A BK-tree answers "nearest key within distance k" and "absolute nearest key"
+ *   without running edit distance against every key
+ * - The same tree answers "nearest key within a confusion-weighted cost" for OCR text
+ * - A SubstringIndex answers the containment tiers of getClosestKey in time
+ *   proportional to the query length
+ *
+ * Ties are broken by the iteration order of the source collection, so results
+ * are identical to a linear scan that keeps the first matching key
+ *
+ * The keys are copied when the index is built; hold the index next to the map or
+ * knowledge base it was built from (as IngredientKnowledgeBase.getKeyIndex does)
+ */
+public final class IngredientKeyIndex {
+
+    private final String[] keys;      // keys in source iteration order (index = ordinal)
+    private final int[] firstChild;   // BK-tree child list head per node, -1 if none
+    private final int[] nextSibling;  // next child of the same parent, -1 if none
+    private final int[] edge;         // distance from a node to its parent
+    private final int[] maxEdge;      // largest child edge per node, -1 if leaf
+    private final int stackSize;      // most entries a search's traversal stack can hold
+    private final SubstringIndex substrings;
+
+    public IngredientKeyIndex(Collection<String> source) {
+        int n = source.size();
+        keys = source.toArray(new String[0]);
+        firstChild = new int[n];
+        nextSibling = new int[n];
+        edge = new int[n];
+        maxEdge = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            firstChild[i] = -1;
+            nextSibling[i] = -1;
+            maxEdge[i] = -1;
+        }
+        for (int i = 1; i < n; i++) insert(i);
+        stackSize = maxStackSize();
+
+        substrings = new SubstringIndex(keys);
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the key closest to the query whose distance is at most maxDistance, or null
+     * When several keys share the smallest distance the earliest one in source order wins
+     */
+    public String nearestWithin(String query, int maxDistance) {
+        int n = keys.length;
+        if (n == 0) return null;
+
+        int bestDist = maxDistance;
+        int bestNode = -1;
+
+        // Explicit stack of (node, lower bound on its distance to the query)
+        int[] stackNode = new int[stackSize];
+        int[] stackBound = new int[stackSize];
+        int top = 0;
+        stackNode[top] = 0;
+        stackBound[top++] = 0;
+
+        while (top > 0) {
+            top--;
+            int node = stackNode[top];
+            if (stackBound[top] > bestDist) continue;
+
+            // Past bestDist + maxEdge neither this node nor any child can qualify, so the
+            // kernel may stop early; the query is passed first so its masks are reused
+            int cap = (int) Math.min(Integer.MAX_VALUE, (long) bestDist + Math.max(maxEdge[node], 0));
+            int d = EditDistance.bounded(query, keys[node], cap);
+            if (d > cap) continue;
+
+            if (d < bestDist || (d == bestDist && (bestNode == -1 || node < bestNode))) {
+                bestDist = d;
+                bestNode = node;
+            }
+
+            // Triangle inequality: only children whose edge lies in [d - best, d + best] can tie or beat it
+            for (int c = firstChild[node]; c != -1; c = nextSibling[c]) {
+                int bound = Math.abs(edge[c] - d);
+                if (bound <= bestDist) {
+                    stackNode[top] = c;
+                    stackBound[top++] = bound;
+                }
+            }
+        }
+
+        return bestNode == -1 ? null : keys[bestNode];
+    }
+
+    /**
+     * Returns the key with the lowest confusion-weighted cost to the query if that cost is at most maxCost, or null
+     * The tree is walked with the Levenshtein radius those costs allow, and only keys inside it are weighed.
+     * Ties are broken by source order, as in nearestWithin
+     */
+    public String nearestWithin(String query, ConfusionCosts costs, int maxCost) {
+        int n = keys.length;
+        if (n == 0) return null;
+
+        int radius = costs.levenshteinBound(maxCost);
+        int bestCost = maxCost;
+        int bestNode = -1;
+
+        int[] stack = new int[stackSize];
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int node = stack[--top];
+
+            // Past radius + maxEdge neither this node nor any child can be inside the radius
+            int cap = (int) Math.min(Integer.MAX_VALUE, (long) radius + Math.max(maxEdge[node], 0));
+            int d = EditDistance.bounded(query, keys[node], cap);
+            if (d > cap) continue;
+
+            if (d <= radius) {
+                int cost = EditDistance.weighted(query, keys[node], costs, bestCost);
+                if (cost < bestCost || (cost == bestCost && (bestNode == -1 || node < bestNode))) {
+                    bestCost = cost;
+                    bestNode = node;
+                }
+            }
+
+            for (int c = firstChild[node]; c != -1; c = nextSibling[c]) {
+                if (Math.abs(edge[c] - d) <= radius) stack[top++] = c;
+            }
+        }
+
+        return bestNode == -1 ? null : keys[bestNode];
+    }
+
+    /**
+     * Returns the first key that contains the query or is contained in it, or null
+     */
+    public String firstContainmentMatch(String query) {
+        int ordinal = substrings.firstContainmentMatch(query);
+        return ordinal == -1 ? null : keys[ordinal];
+    }
+
+    /**
+     * Returns the absolute closest key regardless of distance, or null if the index is empty
+     */
+    public String nearest(String query) {
+        return nearestWithin(query, Integer.MAX_VALUE);
+    }
+
+    // A search pops a node and pushes its children, so the stack never holds more than the
+    // children of the nodes on one root path; a node's ordinal is always above its parent's
+    private int maxStackSize() {
+        int n = keys.length;
+        if (n == 0) return 0;
+
+        int[] bound = new int[n];
+        bound[0] = childCount(0);
+        int max = Math.max(1, bound[0]);
+        for (int node = 0; node < n; node++) {
+            for (int c = firstChild[node]; c != -1; c = nextSibling[c]) {
+                bound[c] = bound[node] - 1 + childCount(c);
+                if (bound[c] > max) max = bound[c];
+            }
+        }
+        return max;
+    }
+
+    private int childCount(int node) {
+        int count = 0;
+        for (int c = firstChild[node]; c != -1; c = nextSibling[c]) count++;
+        return count;
+    }
+
+    // Adds the key at the given ordinal below the root
+    private void insert(int ordinal) {
+        String key = keys[ordinal];
+        int node = 0;
+        while (true) {
+            int d = EditDistance.distance(key, keys[node]);
+            int child = firstChild[node];
+            while (child != -1 && edge[child] != d) child = nextSibling[child];
+
+            if (child == -1) {
+                edge[ordinal] = d;
+                nextSibling[ordinal] = firstChild[node];
+                firstChild[node] = ordinal;
+                if (d > maxEdge[node]) maxEdge[node] = d;
+                return;
+            }
+            node = child;
+        }
+    }
+}
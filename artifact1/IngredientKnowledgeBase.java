@@ -0,0 +1,791 @@
+package com.frank.barcodehealthapp;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Immutable, single handle to all ingredient reference data
+ * - alias > canonical key (ingredient_aliases.json)
+ * - canonical key > classification and description (upc_ingredients.json)
+ * - canonical key > purpose types, type > purpose description (ingredient_purposes.json)
+ *
+ * Every asset is parsed once and every name is normalized once while building.
+ * Canonical keys are interned to one id, and all per-ingredient tables are arrays indexed by that id
+ */
+public final class IngredientKnowledgeBase {
+
+    public static final String ALIASES_ASSET = "ingredient_aliases.json";
+    public static final String INGREDIENTS_ASSET = "upc_ingredients.json";
+    public static final String PURPOSES_ASSET = "ingredient_purposes.json";
+
+    private static final int NORMALIZED_CACHE_SIZE = 1024;
+    private static final int RESOLUTION_CACHE_SIZE = 512;
+
+    // OCR text matches within one ordinary edit, or a few cheap confusions (o/0, rn/m ...)
+    public static final int OCR_MAX_COST = ConfusionCosts.EDIT;
+
+    public static final IngredientKnowledgeBase EMPTY = new Builder().build();
+
+    private final IngredientStore store;
+
+    // Fuzzy index over recordKeys, built on the first lookup that misses an exact match
+    private volatile IngredientKeyIndex keyIndex;
+
+    // Set on OCR views: weighted fuzzy matching within maxConfusionCost instead of the absolute closest key
+    private final IngredientKnowledgeBase base;
+    private final ConfusionCosts confusionCosts;
+    private final int maxConfusionCost;
+    private volatile IngredientKnowledgeBase ocrView;
+
+    // Bounded LRU of raw name > canonical key, so repeated names resolve with one hash lookup
+    private final Map<String, String> normalizedCache =
+            new LinkedHashMap<String, String>(NORMALIZED_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > NORMALIZED_CACHE_SIZE;
+                }
+            };
+
+    // Bounded LRU of raw token > full resolution, shared by every render of every product
+    private final Map<String, IngredientResolution> resolutionCache =
+            new LinkedHashMap<String, IngredientResolution>(RESOLUTION_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, IngredientResolution> eldest) {
+                    return size() > RESOLUTION_CACHE_SIZE;
+                }
+            };
+
+    private IngredientKnowledgeBase(IngredientStore store) {
+        this(store, null, null, 0);
+    }
+
+    private IngredientKnowledgeBase(IngredientStore store, IngredientKnowledgeBase base,
+                                    ConfusionCosts confusionCosts, int maxConfusionCost) {
+        this.store = store;
+        this.base = base;
+        this.confusionCosts = confusionCosts;
+        this.maxConfusionCost = maxConfusionCost;
+    }
+
+    /**
+     * View of the same data for text read by OCR (see OCRManager)
+     * Fuzzy lookups use ConfusionCosts.OCR within OCR_MAX_COST and return no match rather than
+     * drifting to the absolute closest key. Has its own resolution cache
+     */
+    public IngredientKnowledgeBase forOcrText() {
+        if (base != null) return this;
+        IngredientKnowledgeBase view = ocrView;
+        if (view == null) {
+            synchronized (this) {
+                view = ocrView;
+                if (view == null) {
+                    view = forOcrText(ConfusionCosts.OCR, OCR_MAX_COST);
+                    ocrView = view;
+                }
+            }
+        }
+        return view;
+    }
+
+    /**
+     * View of the same data with custom confusion costs and threshold (in ConfusionCosts units)
+     */
+    public IngredientKnowledgeBase forOcrText(ConfusionCosts costs, int maxCost) {
+        IngredientKnowledgeBase root = base == null ? this : base;
+        return new IngredientKnowledgeBase(store, root, costs, maxCost);
+    }
+
+    /**
+     * Wraps a memory-mapped binary dataset; lookups are served from the mapped bytes
+     */
+    static IngredientKnowledgeBase fromStore(IngredientStore store) {
+        return new IngredientKnowledgeBase(store);
+    }
+
+    // Exposes the backing tables to the dataset compiler
+    IngredientStore store() {
+        return store;
+    }
+
+    /**
+     * Streams the three JSON assets into a knowledge base
+     * Aliases are read first so every ingredient name is normalized against them exactly once.
+     * Entries are pulled one at a time and fed straight into the builder, so peak memory while
+     * loading is one record rather than the whole file plus a DOM. Works on every API level.
+     */
+    public static IngredientKnowledgeBase load(InputStream aliasJson, InputStream ingredientJson,
+                                               InputStream purposeJson) throws IOException {
+        Builder builder = new Builder();
+        readAliases(aliasJson, builder);
+        readIngredients(ingredientJson, builder);
+        readPurposes(purposeJson, builder);
+        return builder.build();
+    }
+
+    /**
+     * Opens a named asset; lets loading run without holding on to a Context
+     */
+    public interface AssetSource {
+        InputStream open(String name) throws IOException;
+    }
+
+    /**
+     * Loads the JSON assets with the ingredient and purpose files parsed concurrently
+     * Aliases are read first (both other files normalize against them), then the purpose file is
+     * streamed on the calling thread while the ingredient file is streamed on the executor.
+     * The two partial builders are merged so ids, record order and type order match load().
+     * Fails if any asset can't be read
+     */
+    public static IngredientKnowledgeBase loadConcurrently(AssetSource assets, ExecutorService executor)
+            throws IOException, InterruptedException {
+        return loadConcurrently(assets, executor, true);
+    }
+
+    /**
+     * Like loadConcurrently, but an asset that can't be read is logged and left out, so the others
+     * still load (as the separate per-file loaders did). Fails only if none of the three can be read
+     */
+    public static IngredientKnowledgeBase loadAvailable(AssetSource assets, ExecutorService executor)
+            throws IOException, InterruptedException {
+        return loadConcurrently(assets, executor, false);
+    }
+
+    private static IngredientKnowledgeBase loadConcurrently(final AssetSource assets, ExecutorService executor,
+                                                          boolean strict)
+            throws IOException, InterruptedException {
+        IOException firstFailure = null;
+        int failures = 0;
+
+        // Each asset goes into its own builder, so a file that fails halfway contributes nothing
+        Builder aliases = new Builder();
+        try (InputStream in = assets.open(ALIASES_ASSET)) {
+            readAliases(in, aliases);
+        } catch (IOException | RuntimeException e) {
+            IOException failure = assetFailure(ALIASES_ASSET, e);
+            if (strict) throw failure;
+            failure.printStackTrace();
+            firstFailure = failure;
+            failures++;
+            aliases = new Builder();
+        }
+
+        final Builder records = new Builder(aliases.aliases);
+        Future<?> recordTask = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                try (InputStream in = assets.open(INGREDIENTS_ASSET)) {
+                    readIngredients(in, records);
+                } catch (RuntimeException e) {
+                    throw assetFailure(INGREDIENTS_ASSET, e);
+                }
+                return null;
+            }
+        });
+
+        Builder purposes = new Builder(aliases.aliases);
+        try (InputStream in = assets.open(PURPOSES_ASSET)) {
+            readPurposes(in, purposes);
+        } catch (IOException | RuntimeException e) {
+            IOException failure = assetFailure(PURPOSES_ASSET, e);
+            if (strict) {
+                recordTask.cancel(true);
+                throw failure;
+            }
+            failure.printStackTrace();
+            if (firstFailure == null) firstFailure = failure;
+            failures++;
+            purposes = null;
+        }
+
+        Builder loaded = records;
+        try {
+            recordTask.get();
+        } catch (ExecutionException e) {
+            IOException failure = assetFailure(INGREDIENTS_ASSET, e.getCause());
+            if (strict) throw failure;
+            failure.printStackTrace();
+            if (firstFailure == null) firstFailure = failure;
+            failures++;
+            loaded = new Builder(aliases.aliases);
+        }
+
+        if (failures == 3) throw firstFailure;
+        if (purposes != null) loaded.mergeTypes(purposes);
+        return loaded.build();
+    }
+
+    // JsonReader reports a value of the wrong type (e.g. an array where an object belongs) as an
+    // IllegalStateException; wrap it so every asset fails as an IOException, the same way
+    private static IOException assetFailure(String asset, Throwable cause) {
+        if (cause instanceof IOException) return (IOException) cause;
+        return new IOException("Malformed " + asset, cause);
+    }
+
+    // {"alias": "canonical name", ...}
+    private static void readAliases(InputStream in, Builder builder) throws IOException {
+        JsonReader reader = newReader(in);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String alias = reader.nextName();
+            String canonical = nextStringOrNull(reader);
+            if (canonical != null) builder.addAlias(alias, canonical);
+        }
+        reader.endObject();
+    }
+
+    // [{"ingredient": ..., "description": ..., "classification": ...}, ...]
+    private static void readIngredients(InputStream in, Builder builder) throws IOException {
+        JsonReader reader = newReader(in);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String ingredient = null;
+            String classification = null;
+            String description = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "ingredient": ingredient = nextStringOrNull(reader); break;
+                    case "classification": classification = nextStringOrNull(reader); break;
+                    case "description": description = nextStringOrNull(reader); break;
+                    default: reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            // Records without a name or classification can't be matched or colored
+            if (ingredient != null && classification != null) {
+                builder.addRecord(ingredient, classification, description);
+            }
+        }
+        reader.endArray();
+    }
+
+    // [{"Type": ..., "Purpose": ..., "Ingredients": [...]}, ...]
+    private static void readPurposes(InputStream in, Builder builder) throws IOException {
+        JsonReader reader = newReader(in);
+        List<String> members = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String type = null;
+            String purpose = "";
+            members.clear();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "Type": type = nextStringOrNull(reader); break;
+                    case "Purpose": {
+                        String value = nextStringOrNull(reader);
+                        purpose = value == null ? "" : value.trim();
+                        break;
+                    }
+                    case "Ingredients": {
+                        // Field order isn't guaranteed, so members are held until the type is known
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            String member = nextStringOrNull(reader);
+                            if (member != null) members.add(member);
+                        }
+                        reader.endArray();
+                        break;
+                    }
+                    default: reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (type == null) continue;
+            type = type.trim();
+            builder.addType(type, purpose);
+            for (String member : members) builder.addTypeMember(type, member);
+        }
+        reader.endArray();
+    }
+
+    private static JsonReader newReader(InputStream in) {
+        return new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    // Reads a string (numbers are coerced), or consumes a null and returns null
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) return String.valueOf(reader.nextBoolean());
+        return reader.nextString();
+    }
+
+    /**
+     * Normalizes a raw ingredient name to its canonical key
+     * - Lowercases, strips non-alphanumeric characters
+     * - Substitutes known aliases
+     * - Handles vitamin naming (e.g., B12 > vitaminb12)
+     * - Handles plural-to-singular fallback
+     */
+    public String normalize(String name) {
+        if (name == null) return "";
+
+        synchronized (normalizedCache) {
+            String cached = normalizedCache.get(name);
+            if (cached != null) return cached;
+        }
+
+        String canonical = intern(resolveCanonicalKey(store.aliases(), toKey(name)));
+        synchronized (normalizedCache) {
+            normalizedCache.put(name, canonical);
+        }
+        return canonical;
+    }
+
+    public Map<String, String> getAliasMap() {
+        return store.aliases();
+    }
+
+    /**
+     * Canonical keys that have a classification/description record, used for fuzzy matching
+     */
+    public Set<String> getRecordKeys() {
+        return store.recordKeys();
+    }
+
+    /**
+     * Canonical keys that have at least one purpose type
+     */
+    public Set<String> getTypedKeys() {
+        return store.typedKeys();
+    }
+
+    public Map<String, String> getTypePurposeMap() {
+        return store.typePurposes();
+    }
+
+    /**
+     * Exact classification for a canonical key, or null
+     */
+    public String getClassification(String key) {
+        int id = store.idOf(key);
+        return id == -1 ? null : store.classificationAt(id);
+    }
+
+    /**
+     * Exact description for a canonical key, or null
+     */
+    public String getDescription(String key) {
+        int id = store.idOf(key);
+        return id == -1 ? null : store.descriptionAt(id);
+    }
+
+    /**
+     * Purpose types for a canonical key, or an empty list
+     */
+    public List<String> getTypes(String key) {
+        int id = store.idOf(key);
+        return id == -1 ? Collections.<String>emptyList() : store.typesAt(id);
+    }
+
+    /**
+     * Returns the fuzzy index over record keys, building it on first use
+     */
+    public IngredientKeyIndex getKeyIndex() {
+        if (base != null) return base.getKeyIndex();
+        IngredientKeyIndex index = keyIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = keyIndex;
+                if (index == null) {
+                    index = new IngredientKeyIndex(store.recordKeys());
+                    keyIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Finds a description for a canonical key
+     * Tries exact match, vitamin shorthand, containment / distance ≤ 4, then the absolute closest key
+     * (OCR views: exact match, vitamin shorthand, containment, then the weighted match only)
+     */
+    public String resolveDescription(String norm) {
+        int id = store.idOf(norm);
+        if (id != -1 && store.classificationAt(id) != null) return store.descriptionAt(id);
+
+        int vitaminDigits = vitaminBNumberOffset(norm);
+        if (vitaminDigits != -1) {
+            id = store.idOf("vitaminb" + norm.substring(vitaminDigits));
+            if (id != -1 && store.classificationAt(id) != null) return store.descriptionAt(id);
+        }
+
+        IngredientKeyIndex index = getKeyIndex();
+        String closest = index.firstContainmentMatch(norm);
+        if (closest == null && confusionCosts == null) closest = index.nearestWithin(norm, 4);
+        if (closest == null) closest = fuzzyMatch(index, norm);
+        return closest == null ? null : store.descriptionAt(store.idOf(closest));
+    }
+
+    /**
+     * Finds a classification for a canonical key
+     * Tries exact match, substring containment, then the absolute closest key (OCR views: the weighted match)
+     */
+    public String resolveClassification(String norm) {
+        String classification = getClassification(norm);
+        if (classification != null) return classification;
+
+        IngredientKeyIndex index = getKeyIndex();
+        String closest = index.firstContainmentMatch(norm);
+        if (closest == null) closest = fuzzyMatch(index, norm);
+        return closest == null ? null : store.classificationAt(store.idOf(closest));
+    }
+
+    /**
+     * Resolves a raw ingredient token once: key, types, classification, color and description
+     * Uses the same tiers as resolveClassification and resolveDescription, sharing one fuzzy search
+     */
+    public IngredientResolution resolve(String raw) {
+        if (raw == null) raw = "";
+
+        synchronized (resolutionCache) {
+            IngredientResolution cached = resolutionCache.get(raw);
+            if (cached != null) return cached;
+        }
+
+        IngredientResolution resolution = computeResolution(raw);
+        synchronized (resolutionCache) {
+            resolutionCache.put(raw, resolution);
+        }
+        return resolution;
+    }
+
+    private IngredientResolution computeResolution(String raw) {
+        String key = normalize(raw);
+        List<String> types = getTypes(key);
+
+        String matched;
+        IngredientResolution.Match match;
+        int id = store.idOf(key);
+        if (id != -1 && store.classificationAt(id) != null) {
+            matched = store.keyAt(id);
+            match = IngredientResolution.Match.EXACT;
+        } else {
+            IngredientKeyIndex index = getKeyIndex();
+            matched = index.firstContainmentMatch(key);
+            match = IngredientResolution.Match.CONTAINMENT;
+            if (matched == null) {
+                // nearestWithin(4) in resolveDescription picks the same key whenever one is that close
+                matched = fuzzyMatch(index, key);
+                match = matched == null ? IngredientResolution.Match.NONE : IngredientResolution.Match.NEAREST;
+            }
+            id = matched == null ? -1 : store.idOf(matched);
+        }
+
+        String classification = id == -1 ? null : store.classificationAt(id);
+        String description = id == -1 ? null : store.descriptionAt(id);
+
+        // Descriptions also accept vitamin shorthand (b12 / vitb12) before any fuzzy match
+        int vitaminDigits = match == IngredientResolution.Match.EXACT ? -1 : vitaminBNumberOffset(key);
+        if (vitaminDigits != -1) {
+            int vitaminId = store.idOf("vitaminb" + key.substring(vitaminDigits));
+            if (vitaminId != -1 && store.classificationAt(vitaminId) != null) {
+                description = store.descriptionAt(vitaminId);
+            }
+        }
+
+        return new IngredientResolution(raw, key, types, matched, match, classification, description);
+    }
+
+    // Last fuzzy tier: the absolute closest key, or for OCR views the closest within the weighted threshold
+    private String fuzzyMatch(IngredientKeyIndex index, String key) {
+        if (confusionCosts == null) return index.nearest(key);
+        return index.nearestWithin(key, confusionCosts, maxConfusionCost);
+    }
+
+    // Returns the shared instance of a known canonical key, or the key itself
+    private String intern(String key) {
+        int id = store.idOf(key);
+        return id == -1 ? key : store.keyAt(id);
+    }
+
+    /**
+     * Resolves a stripped key to its canonical form through the alias map
+     */
+    static String resolveCanonicalKey(Map<String, String> aliases, String base) {
+        String alias = aliases.get(base);
+        if (alias != null) return alias;
+
+        // Try singular fallback
+        if (base.endsWith("s")) {
+            alias = aliases.get(base.substring(0, base.length() - 1));
+            if (alias != null) return alias;
+        }
+
+        // Vitamin fallbacks (b12 / vitb12 > vitaminb12), vitaminb12 is already canonical
+        int digits = vitaminBNumberOffset(base);
+        if (digits == 1 || digits == 4) {
+            alias = aliases.get("vitaminb" + base.substring(digits));
+            if (alias != null) return alias;
+        }
+
+        return base;
+    }
+
+    /**
+     * Lowercases and strips every char outside [a-z0-9] in a single pass.
+     * Returns the input itself when it is already a clean key.
+     */
+    static String toKey(String name) {
+        int length = name.length();
+        int i = 0;
+        while (i < length) {
+            char c = name.charAt(i);
+            if ((c < 'a' || c > 'z') && (c < '0' || c > '9')) break;
+            i++;
+        }
+        if (i == length) return name;
+
+        char[] out = new char[length];
+        name.getChars(0, i, out, 0);
+        int n = i;
+        for (; i < length; i++) {
+            char c = name.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                out[n++] = (char) (c + ('a' - 'A'));
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                out[n++] = c;
+            } else if (c >= 128) {
+                // Non-ASCII chars that lowercase into [a-z] (e.g. the Kelvin sign) survive like before
+                char lower = Character.toLowerCase(c);
+                if (lower >= 'a' && lower <= 'z') out[n++] = lower;
+            }
+        }
+        return new String(out, 0, n);
+    }
+
+    /**
+     * Recognizes vitamin B shorthand keys: b12, vitb12 and vitaminb12.
+     * Returns the offset of the 1-2 trailing digits, or -1 if the key is not vitamin B shorthand.
+     */
+    static int vitaminBNumberOffset(String key) {
+        int offset;
+        if (key.startsWith("b")) offset = 1;
+        else if (key.startsWith("vitb")) offset = 4;
+        else if (key.startsWith("vitaminb")) offset = 8;
+        else return -1;
+
+        int digits = key.length() - offset;
+        if (digits < 1 || digits > 2) return -1;
+        for (int i = offset; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') return -1;
+        }
+        return offset;
+    }
+
+    /**
+     * Accumulates entries while the assets are parsed; aliases must be added before any other entries
+     */
+    static final class Builder {
+        private final Map<String, String> aliases;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final Map<String, Integer> recordIds = new HashMap<>();
+        private final List<String> keys = new ArrayList<>();
+        private final List<String> classifications = new ArrayList<>();
+        private final List<String> descriptions = new ArrayList<>();
+        private final List<List<String>> types = new ArrayList<>();
+        private final Map<String, String> typePurposes = new HashMap<>();
+        private final Map<String, String> internedStrings = new HashMap<>();
+
+        Builder() {
+            this(new HashMap<String, String>());
+        }
+
+        // Shares an alias map that is already complete (read-only from here on)
+        Builder(Map<String, String> aliases) {
+            this.aliases = aliases;
+        }
+
+        void addAlias(String alias, String canonical) {
+            aliases.put(toKey(alias), toKey(canonical));
+        }
+
+        void addRecord(String ingredient, String classification, String description) {
+            int id = idFor(ingredient);
+            classifications.set(id, shared(classification));
+            descriptions.set(id, description);
+            recordIds.put(keys.get(id), id);
+        }
+
+        void addType(String type, String purpose) {
+            typePurposes.put(type.toLowerCase(), purpose);
+        }
+
+        void addTypeMember(String type, String ingredient) {
+            int id = idFor(ingredient);
+            List<String> list = types.get(id);
+            if (list == null) {
+                list = new ArrayList<>(2);
+                types.set(id, list);
+            }
+            list.add(shared(type));
+        }
+
+        /**
+         * Appends the purpose data of another builder that shares this alias map
+         * New keys are added in the other builder's first-seen order, as if its entries came after ours
+         */
+        void mergeTypes(Builder other) {
+            for (int otherId = 0; otherId < other.keys.size(); otherId++) {
+                List<String> otherTypes = other.types.get(otherId);
+                int id = idForKey(other.keys.get(otherId));
+                if (otherTypes == null) continue;
+
+                List<String> list = types.get(id);
+                if (list == null) {
+                    list = new ArrayList<>(otherTypes.size());
+                    types.set(id, list);
+                }
+                for (String type : otherTypes) list.add(shared(type));
+            }
+            typePurposes.putAll(other.typePurposes);
+        }
+
+        IngredientKnowledgeBase build() {
+            return new IngredientKnowledgeBase(new HeapStore(this));
+        }
+
+        // Normalizes a raw name once and returns the id of its canonical key
+        private int idFor(String rawName) {
+            return idForKey(resolveCanonicalKey(aliases, toKey(rawName)));
+        }
+
+        private int idForKey(String key) {
+            Integer id = ids.get(key);
+            if (id != null) return id;
+
+            id = keys.size();
+            ids.put(key, id);
+            keys.add(key);
+            classifications.add(null);
+            descriptions.add(null);
+            types.add(null);
+            return id;
+        }
+
+        // Classification and type names repeat thousands of times; keep one instance of each
+        private String shared(String value) {
+            String existing = internedStrings.get(value);
+            if (existing != null) return existing;
+            internedStrings.put(value, value);
+            return value;
+        }
+    }
+
+    /**
+     * Heap tables produced by the JSON builder; all per-key data is in arrays indexed by id
+     */
+    private static final class HeapStore implements IngredientStore {
+        private final Map<String, String> aliases;        // stripped alias > canonical key
+        private final Map<String, Integer> ids;           // canonical key > id
+        private final String[] keys;                      // id > interned canonical key
+        private final String[] classifications;           // id > classification, null if no record
+        private final String[] descriptions;              // id > description, null if none
+        private final List<List<String>> types;           // id > purpose types (shared empty list if none)
+        private final Map<String, String> typePurposes;   // lowercased type > purpose description
+        private final Set<String> recordKeys;             // keys with an upc_ingredients record
+        private final Set<String> typedKeys;              // keys with at least one purpose type
+
+        HeapStore(Builder builder) {
+            aliases = Collections.unmodifiableMap(builder.aliases);
+            ids = builder.ids;
+            int n = builder.keys.size();
+            keys = builder.keys.toArray(new String[n]);
+            classifications = builder.classifications.toArray(new String[n]);
+            descriptions = builder.descriptions.toArray(new String[n]);
+            List<List<String>> typeLists = new ArrayList<>(n);
+            Set<String> typed = new HashSet<>();
+            for (int id = 0; id < n; id++) {
+                List<String> list = builder.types.get(id);
+                if (list == null) {
+                    typeLists.add(Collections.<String>emptyList());
+                } else {
+                    typeLists.add(Collections.unmodifiableList(list));
+                    typed.add(keys[id]);
+                }
+            }
+            types = typeLists;
+            typedKeys = Collections.unmodifiableSet(typed);
+            typePurposes = Collections.unmodifiableMap(builder.typePurposes);
+            recordKeys = Collections.unmodifiableSet(builder.recordIds.keySet());
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+
+        @Override
+        public int idOf(String key) {
+            Integer id = ids.get(key);
+            return id == null ? -1 : id;
+        }
+
+        @Override
+        public String keyAt(int id) {
+            return keys[id];
+        }
+
+        @Override
+        public String classificationAt(int id) {
+            return classifications[id];
+        }
+
+        @Override
+        public String descriptionAt(int id) {
+            return descriptions[id];
+        }
+
+        @Override
+        public List<String> typesAt(int id) {
+            return types.get(id);
+        }
+
+        @Override
+        public Map<String, String> aliases() {
+            return aliases;
+        }
+
+        @Override
+        public Map<String, String> typePurposes() {
+            return typePurposes;
+        }
+
+        @Override
+        public Set<String> recordKeys() {
+            return recordKeys;
+        }
+
+        @Override
+        public Set<String> typedKeys() {
+            return typedKeys;
+        }
+    }
+}
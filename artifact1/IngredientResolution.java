@@ -0,0 +1,67 @@
+package com.frank.barcodehealthapp;
+
+import android.graphics.Color;
+
+import java.util.List;
+
+/**
+ * Everything the ingredient display needs about one raw ingredient token, resolved once
+ * - canonical key, purpose types
+ * - the record it matched (and how), its classification, color and description
+ * Cached per knowledge base (see IngredientKnowledgeBase.resolve), so re-rendering the list,
+ * toggling detailed mode or expanding a row never repeats the fuzzy matching
+ */
+public final class IngredientResolution {
+
+    /**
+     * Which lookup tier found the record
+     */
+    public enum Match {
+        EXACT,
+        CONTAINMENT,
+        NEAREST,
+        NONE
+    }
+
+    public final String raw;
+    public final String key;
+    public final List<String> types;
+    public final String matchedKey;
+    public final Match match;
+    public final String classification;
+    public final String description;
+
+    // Classification color; flagged ingredients are red, which is checked at render time
+    public final int color;
+
+    IngredientResolution(String raw, String key, List<String> types, String matchedKey, Match match,
+                         String classification, String description) {
+        this.raw = raw;
+        this.key = key;
+        this.types = types;
+        this.matchedKey = matchedKey;
+        this.match = match;
+        this.classification = classification;
+        this.description = description;
+        this.color = colorForClassification(classification);
+    }
+
+    /**
+     * Maps a classification to its display color
+     */
+    public static int colorForClassification(String classification) {
+        if (classification == null) return Color.DKGRAY;
+
+        switch (classification.trim().toLowerCase()) {
+            case "natural": return Color.rgb(0, 128, 0);
+            case "artificial": return Color.rgb(255, 140, 0);
+            case "both": return Color.MAGENTA;
+            default: return Color.GRAY;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return raw + " > " + key + " (" + match + (matchedKey == null ? "" : " " + matchedKey) + ")";
+    }
+}
@@ -0,0 +1,51 @@
+package com.frank.barcodehealthapp;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Backing tables of an IngredientKnowledgeBase
+ * Implemented on the heap (parsed from JSON) and over a memory-mapped binary dataset
+ * Ids are dense in [0, size()) and only meaningful within one store
+ */
+interface IngredientStore {
+
+    int size();
+
+    /**
+     * Id of a canonical key, or -1 if the key is unknown
+     */
+    int idOf(String key);
+
+    String keyAt(int id);
+
+    /**
+     * Classification of the key, or null if it has no upc_ingredients record
+     */
+    String classificationAt(int id);
+
+    String descriptionAt(int id);
+
+    /**
+     * Purpose types of the key, or an empty list
+     */
+    List<String> typesAt(int id);
+
+    /**
+     * Stripped alias > canonical key; get() must be cheap, iteration may be slow
+     */
+    Map<String, String> aliases();
+
+    /**
+     * Lowercased type > purpose description; get() must be cheap, iteration may be slow
+     */
+    Map<String, String> typePurposes();
+
+    /**
+     * Keys with a record, in the order fuzzy matching breaks ties by
+     */
+    Set<String> recordKeys();
+
+    Set<String> typedKeys();
+}
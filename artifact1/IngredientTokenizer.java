@@ -0,0 +1,162 @@
+package com.frank.barcodehealthapp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-pass lexer for raw ingredient text (e.g. OpenFoodFacts ingredients_text)
+ * - Skips prefaces like "Advice:" and leading sentences before the comma-separated list
+ * - Splits on commas and on parenthesis/bracket boundaries at any nesting depth
+ * - Collapses whitespace, drops a leading "and ", and de-duplicates tokens
+ * Each token records how deeply it was nested, so "Chocolate (Sugar, Cocoa Butter (Soy Lecithin))"
+ * yields Chocolate/0, Sugar/1, Cocoa Butter/1, Soy Lecithin/2
+ */
+public final class IngredientTokenizer {
+
+    private static final String ADVICE = "advice";
+
+    /**
+     * An ingredient name and the parenthesis depth it was found at
+     */
+    public static final class Token {
+        public final String text;
+        public final int depth;
+
+        Token(String text, int depth) {
+            this.text = text;
+            this.depth = depth;
+        }
+
+        @Override
+        public String toString() {
+            return text + "@" + depth;
+        }
+    }
+
+    private IngredientTokenizer() {
+    }
+
+    /**
+     * Tokenizes the ingredient text in one pass, keeping the first occurrence of each token
+     */
+    public static List<Token> tokenize(String ingredientsText) {
+        List<Token> tokens = new ArrayList<>();
+        if (ingredientsText == null) return tokens;
+
+        String text = ingredientsText;
+        int start = 0;
+        int end = text.length();
+
+        // Trim, then drop trailing periods
+        while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+        while (end > start && text.charAt(end - 1) == '.') end--;
+
+        start = skipPreamble(text, start, end);
+
+        Map<String, Token> seen = new LinkedHashMap<>();
+        StringBuilder current = new StringBuilder();
+        int depth = 0;
+        boolean pendingSpace = false;
+
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case ',':
+                    emit(current, depth, seen);
+                    pendingSpace = false;
+                    break;
+                case '(':
+                case '[':
+                    emit(current, depth, seen);
+                    pendingSpace = false;
+                    depth++;
+                    break;
+                case ')':
+                case ']':
+                    emit(current, depth, seen);
+                    pendingSpace = false;
+                    if (depth > 0) depth--;
+                    break;
+                default:
+                    if (Character.isWhitespace(c)) {
+                        pendingSpace = current.length() > 0;
+                    } else {
+                        if (pendingSpace) current.append(' ');
+                        pendingSpace = false;
+                        current.append(c);
+                    }
+            }
+        }
+        emit(current, depth, seen);
+
+        tokens.addAll(seen.values());
+        return tokens;
+    }
+
+    /**
+     * Returns just the token names, in first-seen order
+     */
+    public static List<String> tokenizeNames(String ingredientsText) {
+        List<Token> tokens = tokenize(ingredientsText);
+        List<String> names = new ArrayList<>(tokens.size());
+        for (Token token : tokens) names.add(token.text);
+        return names;
+    }
+
+    /**
+     * Returns the index the ingredient list starts at
+     * - After the last "advice" (case-insensitive) and any following ":", "." or whitespace
+     * - Otherwise after the last period, if the remainder still looks like a comma-separated list
+     */
+    private static int skipPreamble(String text, int start, int end) {
+        for (int i = end - ADVICE.length(); i >= start; i--) {
+            if (text.regionMatches(true, i, ADVICE, 0, ADVICE.length())) {
+                int j = i + ADVICE.length();
+                while (j < end) {
+                    char c = text.charAt(j);
+                    if (c != ':' && c != '.' && !Character.isWhitespace(c)) break;
+                    j++;
+                }
+                return j;
+            }
+        }
+
+        int lastPeriod = -1;
+        for (int i = end - 1; i >= start; i--) {
+            if (text.charAt(i) == '.') {
+                lastPeriod = i;
+                break;
+            }
+        }
+        if (lastPeriod != -1 && lastPeriod < end - 1) {
+            for (int i = lastPeriod + 1; i < end; i++) {
+                if (text.charAt(i) == ',') return lastPeriod + 1;
+            }
+        }
+        return start;
+    }
+
+    // Emits the buffered token (whitespace already collapsed) and resets the buffer
+    private static void emit(StringBuilder current, int depth, Map<String, Token> seen) {
+        int from = 0;
+        int to = current.length();
+        if (to > 0 && current.charAt(to - 1) == ' ') to--;
+
+        // Drop a leading "and " joining the last two items of a list
+        if (to - from > 4 && (current.charAt(0) == 'a' || current.charAt(0) == 'A')
+                && (current.charAt(1) == 'n' || current.charAt(1) == 'N')
+                && (current.charAt(2) == 'd' || current.charAt(2) == 'D')
+                && current.charAt(3) == ' ') {
+            from = 4;
+        }
+
+        if (to > from) {
+            String name = current.substring(from, to);
+            if (!seen.containsKey(name)) seen.put(name, new Token(name, depth));
+        }
+        current.setLength(0);
+    }
+}
@@ -0,0 +1,205 @@
+package com.frank.barcodehealthapp;
+
+import android.content.Context;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Local product database built from an OpenFoodFacts export (see LocalProductStoreImporter)
+ * Lookups need no network: the GTIN index is memory-mapped and binary-searched in place,
+ * and only the one matching record is read from disk, so heap use doesn't grow with the catalogue
+ *
+ * Layout (big-endian):
+ *   header   MAGIC, VERSION, count (ints), reserved int, dataOffset (long)
+ *   gtins    count x long, sorted ascending (barcode digits as a number, so leading zeros don't matter)
+ *   offsets  count x long, absolute file position of each product's record
+ *   records  name, brand, ingredients; each an int byte length (-1 for null) and UTF-8 bytes
+ */
+public final class LocalProductStore implements Closeable {
+
+    public static final String FILE_NAME = "products.offp";
+
+    static final int MAGIC = 0x4F464650; // "OFFP"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+
+    // Most records fit in one read; longer ones get a second read of the exact size
+    private static final int RECORD_READ_SIZE = 2048;
+
+    // The store currently open, and the file state it was opened (or failed to open) from; -1 when absent
+    private static LocalProductStore instance;
+    private static File openedFile;
+    private static long openedModified = -1;
+    private static long openedLength = -1;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final LongBuffer gtins;
+    private final LongBuffer offsets;
+    private final int count;
+
+    private LocalProductStore(RandomAccessFile file) throws IOException {
+        this.file = file;
+        this.channel = file.getChannel();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        if (header.getInt(0) != MAGIC) throw new IOException("Not a product store");
+        if (header.getInt(4) != VERSION) throw new IOException("Unsupported product store version " + header.getInt(4));
+        count = header.getInt(8);
+
+        long indexSize = 16L * count;
+        if (HEADER_SIZE + indexSize > channel.size()) throw new IOException("Truncated product store");
+        ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, indexSize);
+        index.limit(8 * count);
+        gtins = index.slice().asLongBuffer();
+        index.limit((int) indexSize).position(8 * count);
+        offsets = index.slice().asLongBuffer();
+    }
+
+    public static LocalProductStore open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return new LocalProductStore(raf);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The store imported into the app's files dir, or null if there isn't one
+     */
+    public static LocalProductStore get(Context context) {
+        return get(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+    }
+
+    /**
+     * The store in this file, reopened when the file appears, is replaced (size or mtime changes) or is deleted
+     * A file that fails to open isn't retried until it changes. The replaced store is closed, so a lookup
+     * still running on it fails with an IOException
+     */
+    static synchronized LocalProductStore get(File file) {
+        long modified = file.isFile() ? file.lastModified() : -1;
+        long length = modified == -1 ? -1 : file.length();
+        if (file.equals(openedFile) && modified == openedModified && length == openedLength) return instance;
+
+        if (instance != null) {
+            try {
+                instance.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            instance = null;
+        }
+        openedFile = file;
+        openedModified = modified;
+        openedLength = length;
+
+        if (modified != -1) {
+            try {
+                instance = open(file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return instance;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Numeric key for a barcode: its GTIN (see Gtin), or for codes that fail validation their
+     * digits as a number; -1 if it isn't an all-digit code
+     * UPC-E, UPC-A, EAN-13 and GTIN-14 spellings of one product share a key
+     */
+    static long key(String barcode) {
+        String code = barcode.trim();
+
+        // Bare 6-digit UPC-E bodies carry no check digit, so they aren't trusted to be UPC-E
+        if (code.length() != 6) {
+            long gtin = Gtin.parse(code);
+            if (gtin != Gtin.INVALID) return gtin;
+        }
+
+        // Exports contain some codes with bad check digits; keep them reachable by their exact digits
+        if (code.isEmpty() || code.length() > 18) return -1;
+        long value = 0;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Returns the product for a barcode, or null if the store doesn't have it
+     */
+    public ProductInfo lookup(String barcode) throws IOException {
+        long key = key(barcode);
+        if (key == -1) return null;
+
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long gtin = gtins.get(mid);
+            if (gtin < key) lo = mid + 1;
+            else if (gtin > key) hi = mid - 1;
+            else return readRecord(offsets.get(mid));
+        }
+        return null;
+    }
+
+    private ProductInfo readRecord(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(RECORD_READ_SIZE, channel.size() - position));
+        readFully(buffer, position);
+        buffer.flip();
+
+        String[] fields = new String[3];
+        for (int i = 0; i < fields.length; i++) {
+            if (buffer.remaining() < 4) buffer = reread(buffer, position, 4);
+            int length = buffer.getInt();
+            if (length == -1) continue;
+            if (buffer.remaining() < length) buffer = reread(buffer, position, length);
+            fields[i] = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        }
+        return new ProductInfo(fields[0], fields[1], fields[2]);
+    }
+
+    // Re-reads the record from its start with room for `needed` more bytes past the current position
+    private ByteBuffer reread(ByteBuffer buffer, long recordStart, int needed) throws IOException {
+        int consumed = buffer.position();
+        long size = (long) consumed + needed;
+        if (recordStart + size > channel.size()) throw new IOException("Corrupt product record");
+
+        ByteBuffer larger = ByteBuffer.allocate((int) size);
+        readFully(larger, recordStart);
+        larger.flip();
+        larger.position(consumed);
+        return larger;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read == -1) break;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
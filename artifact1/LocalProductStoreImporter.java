@@ -0,0 +1,277 @@
+package com.frank.barcodehealthapp;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Builds a LocalProductStore file from an OpenFoodFacts export
+ * Runs on the host JVM (or a worker thread on device):
+ *
+ *   java LocalProductStoreImporter openfoodfacts-products.jsonl.gz products.offp
+ *   java LocalProductStoreImporter en.openfoodfacts.org.products.csv products.offp
+ *
+ * JSONL exports (one product object per line) are read with org.json; CSV exports are the
+ * tab-separated OFF format (comma-separated files with a header also work).
+ * Only code, product_name, brands and ingredients_text are kept. Records are written in input
+ * order to a temporary file while just (gtin, offset) pairs stay in memory as primitive arrays,
+ * then the pairs are sorted and the index is written in front of the records.
+ * If a barcode appears more than once, the last occurrence wins
+ */
+public final class LocalProductStoreImporter {
+
+    private static final String[] COLUMNS = {"code", "product_name", "brands", "ingredients_text"};
+
+    private LocalProductStoreImporter() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: LocalProductStoreImporter <export.jsonl[.gz]|export.csv[.gz]> <out.offp>");
+            System.exit(2);
+        }
+
+        File input = new File(args[0]);
+        String name = input.getName().toLowerCase();
+        if (name.endsWith(".gz")) name = name.substring(0, name.length() - 3);
+
+        int imported;
+        try (InputStream in = open(input)) {
+            imported = importExport(in, name.endsWith(".jsonl") || name.endsWith(".json"), new File(args[1]));
+        }
+        System.out.println("Imported " + imported + " products");
+    }
+
+    private static InputStream open(File input) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(input), 1 << 16);
+        return input.getName().toLowerCase().endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in;
+    }
+
+    /**
+     * Imports a JSONL or CSV export and writes the store to output; returns the number of products
+     */
+    static int importExport(InputStream export, boolean jsonLines, File output) throws IOException {
+        File records = new File(output.getPath() + ".records.tmp");
+        Index index = new Index();
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(records), 1 << 16))) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(export, StandardCharsets.UTF_8), 1 << 16);
+                if (jsonLines) readJsonLines(reader, out, index);
+                else readCsv(reader, out, index);
+            }
+            index.sortAndDeduplicate();
+            write(index, records, output);
+            return index.size;
+        } finally {
+            records.delete();
+        }
+    }
+
+    private static void readJsonLines(BufferedReader reader, DataOutputStream out, Index index) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) continue;
+            try {
+                JSONObject product = new JSONObject(line);
+                add(product.optString("code", null), optString(product, "product_name"),
+                        optString(product, "brands"), optString(product, "ingredients_text"), out, index);
+            } catch (JSONException e) {
+                // Skip malformed lines; exports occasionally contain truncated records
+            }
+        }
+    }
+
+    // Same null handling as the app's streaming OpenFoodFacts parser
+    private static String optString(JSONObject product, String name) {
+        Object value = product.opt(name);
+        return value instanceof String || value instanceof Number ? value.toString() : null;
+    }
+
+    private static void readCsv(BufferedReader reader, DataOutputStream out, Index index) throws IOException {
+        String header = reader.readLine();
+        if (header == null) return;
+        char separator = header.indexOf('\t') != -1 ? '\t' : ',';
+
+        List<String> names = split(header, separator);
+        int[] columns = new int[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            columns[i] = names.indexOf(COLUMNS[i]);
+            if (columns[i] == -1 && i == 0) throw new IOException("Export has no code column");
+        }
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            List<String> row = split(line, separator);
+            String[] values = new String[COLUMNS.length];
+            for (int i = 0; i < COLUMNS.length; i++) {
+                int column = columns[i];
+                values[i] = column != -1 && column < row.size() && !row.get(column).isEmpty() ? row.get(column) : null;
+            }
+            add(values[0], values[1], values[2], values[3], out, index);
+        }
+    }
+
+    /**
+     * Splits one row; tab-separated exports aren't quoted, comma-separated ones may use "..." quoting
+     */
+    static List<String> split(String line, char separator) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (separator == ',' && c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == separator && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static void add(String code, String name, String brand, String ingredients,
+                            DataOutputStream out, Index index) throws IOException {
+        if (code == null) return;
+        long gtin = LocalProductStore.key(code);
+        if (gtin <= 0) return;
+
+        // DataOutputStream.size() stops at 2 GB, so the record position is tracked here
+        index.add(gtin, index.recordBytes);
+        index.recordBytes += writeString(out, name) + writeString(out, brand) + writeString(out, ingredients);
+    }
+
+    // Returns the number of bytes written
+    private static long writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return 4;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return 4 + bytes.length;
+    }
+
+    private static void write(Index index, File records, File output) throws IOException {
+        long dataOffset = LocalProductStore.HEADER_SIZE + 16L * index.size;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output), 1 << 16))) {
+            out.writeInt(LocalProductStore.MAGIC);
+            out.writeInt(LocalProductStore.VERSION);
+            out.writeInt(index.size);
+            out.writeInt(0);
+            out.writeLong(dataOffset);
+            for (int i = 0; i < index.size; i++) out.writeLong(index.gtins[i]);
+            for (int i = 0; i < index.size; i++) out.writeLong(dataOffset + index.offsets[i]);
+
+            try (InputStream in = new FileInputStream(records)) {
+                copy(in, out);
+            }
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+        int read;
+        while ((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+    }
+
+    /**
+     * Parallel primitive arrays of (gtin, record offset); about 16 bytes per product
+     */
+    static final class Index {
+        long[] gtins = new long[1024];
+        long[] offsets = new long[1024];
+        int size;
+        long recordBytes;
+
+        void add(long gtin, long offset) {
+            if (size == gtins.length) {
+                gtins = Arrays.copyOf(gtins, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            gtins[size] = gtin;
+            offsets[size] = offset;
+            size++;
+        }
+
+        /**
+         * Sorts by gtin (then offset, i.e. input order) and keeps the last record of each gtin
+         */
+        void sortAndDeduplicate() {
+            sort(0, size - 1);
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (i + 1 < size && gtins[i + 1] == gtins[i]) continue;
+                gtins[kept] = gtins[i];
+                offsets[kept] = offsets[i];
+                kept++;
+            }
+            size = kept;
+        }
+
+        // In-place quicksort of both arrays by (gtin, offset); insertion sort for short ranges
+        private void sort(int lo, int hi) {
+            while (hi - lo > 16) {
+                int mid = (lo + hi) >>> 1;
+                long pivotGtin = gtins[mid];
+                long pivotOffset = offsets[mid];
+                int i = lo;
+                int j = hi;
+                while (i <= j) {
+                    while (less(gtins[i], offsets[i], pivotGtin, pivotOffset)) i++;
+                    while (less(pivotGtin, pivotOffset, gtins[j], offsets[j])) j--;
+                    if (i <= j) swap(i++, j--);
+                }
+                // Recurse into the smaller half to bound stack depth
+                if (j - lo < hi - i) {
+                    sort(lo, j);
+                    lo = i;
+                } else {
+                    sort(i, hi);
+                    hi = j;
+                }
+            }
+            for (int i = lo + 1; i <= hi; i++) {
+                for (int j = i; j > lo && less(gtins[j], offsets[j], gtins[j - 1], offsets[j - 1]); j--) swap(j, j - 1);
+            }
+        }
+
+        private static boolean less(long gtinA, long offsetA, long gtinB, long offsetB) {
+            return gtinA < gtinB || (gtinA == gtinB && offsetA < offsetB);
+        }
+
+        private void swap(int a, int b) {
+            long gtin = gtins[a];
+            gtins[a] = gtins[b];
+            gtins[b] = gtin;
+            long offset = offsets[a];
+            offsets[a] = offsets[b];
+            offsets[b] = offset;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.frank.barcodehealthapp;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Read-only view of the precompiled ingredient dataset (see IngredientDatasetCompiler)
+ * The file is memory-mapped and every lookup binary-searches the mapped tables directly,
+ * so cold start does no JSON parsing and the heap only holds strings that are actually read
+ *
+ * Layout (big-endian, all offsets in bytes):
+ *   header   MAGIC, VERSION, keyCount, aliasCount, typePurposeCount, recordCount,
+ *            keysOffset, aliasesOffset, typePurposesOffset, typeRefsOffset, recordOrderOffset,
+ *            stringsOffset, stringsLength, CRC32 of everything after the header
+ *   keys         keyCount x (key ref, classification ref, description ref, typesStart, typesCount), sorted by key
+ *   aliases      aliasCount x (alias ref, canonical ref), sorted by alias
+ *   typePurposes typePurposeCount x (lowercased type ref, purpose ref), sorted by type
+ *   typeRefs     type name refs, referenced by (typesStart, typesCount)
+ *   recordOrder  recordCount x key id, in fuzzy-match tie-break order
+ *   strings      UTF-8 pool; a ref is (offset into pool, byte length), offset -1 for null
+ *
+ * Opening checks only the header, the section bounds and the checksum; individual entries are
+ * range-checked as they are read
+ */
+public final class MappedIngredientDataset implements IngredientStore {
+
+    public static final String ASSET = "ingredients.ikb";
+
+    static final int MAGIC = 0x494B4442; // "IKDB"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 14 * 4;
+    static final int CHECKSUM_OFFSET = HEADER_SIZE - 4;
+    static final int REF_SIZE = 8;
+    static final int KEY_ENTRY_SIZE = 3 * REF_SIZE + 8;
+    static final int PAIR_ENTRY_SIZE = 2 * REF_SIZE;
+
+    private final ByteBuffer buffer;
+    private final int keyCount;
+    private final int aliasCount;
+    private final int typePurposeCount;
+    private final int recordCount;
+    private final int keysOffset;
+    private final int aliasesOffset;
+    private final int typePurposesOffset;
+    private final int typeRefsOffset;
+    private final int recordOrderOffset;
+    private final int stringsOffset;
+    private final int stringsLength;
+
+    private final Map<String, String> aliasView = new SortedTableMap(true);
+    private final Map<String, String> typePurposeView = new SortedTableMap(false);
+    private final Set<String> recordKeyView = new RecordKeySet();
+    private volatile Set<String> typedKeys;
+
+    private MappedIngredientDataset(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an ingredient dataset");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported ingredient dataset version " + buffer.getInt(4));
+        }
+        keyCount = buffer.getInt(8);
+        aliasCount = buffer.getInt(12);
+        typePurposeCount = buffer.getInt(16);
+        recordCount = buffer.getInt(20);
+        keysOffset = buffer.getInt(24);
+        aliasesOffset = buffer.getInt(28);
+        typePurposesOffset = buffer.getInt(32);
+        typeRefsOffset = buffer.getInt(36);
+        recordOrderOffset = buffer.getInt(40);
+        stringsOffset = buffer.getInt(44);
+        stringsLength = buffer.getInt(48);
+        validate();
+    }
+
+    /**
+     * Checks the tables lie inside the buffer and the body matches its checksum, so a truncated or
+     * corrupt file fails here with an IOException (and callers fall back to the JSON assets)
+     * This is one sequential pass with no per-entry work; entries are checked when read (see ref)
+     */
+    private void validate() throws IOException {
+        checkSection("strings", stringsOffset, stringsLength, 1);
+        checkSection("keys", keysOffset, keyCount, KEY_ENTRY_SIZE);
+        checkSection("aliases", aliasesOffset, aliasCount, PAIR_ENTRY_SIZE);
+        checkSection("type purposes", typePurposesOffset, typePurposeCount, PAIR_ENTRY_SIZE);
+        checkSection("record order", recordOrderOffset, recordCount, 4);
+        if (typeRefsOffset < HEADER_SIZE || typeRefsOffset > buffer.limit()) throw corrupt("type refs");
+        if (buffer.getInt(CHECKSUM_OFFSET) != checksum(buffer)) throw corrupt("checksum");
+    }
+
+    // A table of count entries of entrySize bytes at offset must lie between the header and the limit
+    private void checkSection(String name, int offset, int count, int entrySize) throws IOException {
+        if (offset < HEADER_SIZE || count < 0 || offset + (long) count * entrySize > buffer.limit()) {
+            throw corrupt(name);
+        }
+    }
+
+    /**
+     * CRC32 of everything after the header
+     * Read through a small array rather than CRC32.update(ByteBuffer), which needs API 26
+     */
+    static int checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        ByteBuffer body = buffer.duplicate();
+        body.position(HEADER_SIZE);
+        byte[] chunk = new byte[8192];
+        while (body.hasRemaining()) {
+            int length = Math.min(chunk.length, body.remaining());
+            body.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+
+    // Returns a ref's offset into the string pool, or -1 for null; a ref pointing outside the pool
+    // can only come from a compiler bug once the checksum matched, so it is reported unchecked
+    private int ref(int refPosition) {
+        int offset = buffer.getInt(refPosition);
+        if (offset == -1) return -1;
+        int length = buffer.getInt(refPosition + 4);
+        if (offset < 0 || length < 0 || (long) offset + length > stringsLength) throw corruptEntry("string ref");
+        return offset;
+    }
+
+    private static IllegalStateException corruptEntry(String entry) {
+        return new IllegalStateException("Corrupt ingredient dataset (" + entry + ")");
+    }
+
+    private static IOException corrupt(String section) {
+        return new IOException("Corrupt ingredient dataset (" + section + ")");
+    }
+
+    /**
+     * Wraps an already mapped (or in-memory) dataset buffer
+     */
+    public static MappedIngredientDataset wrap(ByteBuffer buffer) throws IOException {
+        return new MappedIngredientDataset(buffer);
+    }
+
+    /**
+     * Maps the dataset straight out of the APK
+     * The asset must be stored uncompressed (noCompress "ikb") so it has a file descriptor
+     */
+    public static MappedIngredientDataset map(Context context) throws IOException {
+        try (AssetFileDescriptor fd = context.getAssets().openFd(ASSET);
+             FileInputStream in = fd.createInputStream()) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getDeclaredLength());
+            return new MappedIngredientDataset(mapped);
+        } catch (RuntimeException e) {
+            // Anything the mapping itself throws still means "unusable"
+            throw new IOException("Unreadable ingredient dataset", e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return keyCount;
+    }
+
+    @Override
+    public int idOf(String key) {
+        return search(keysOffset, KEY_ENTRY_SIZE, keyCount, key);
+    }
+
+    @Override
+    public String keyAt(int id) {
+        if (id < 0 || id >= keyCount) throw corruptEntry("key id");
+        return readString(keysOffset + id * KEY_ENTRY_SIZE);
+    }
+
+    @Override
+    public String classificationAt(int id) {
+        return readString(keysOffset + id * KEY_ENTRY_SIZE + REF_SIZE);
+    }
+
+    @Override
+    public String descriptionAt(int id) {
+        return readString(keysOffset + id * KEY_ENTRY_SIZE + 2 * REF_SIZE);
+    }
+
+    @Override
+    public List<String> typesAt(int id) {
+        int entry = keysOffset + id * KEY_ENTRY_SIZE + 3 * REF_SIZE;
+        int start = buffer.getInt(entry);
+        int count = buffer.getInt(entry + 4);
+        if (count == 0) return Collections.emptyList();
+        if (start < 0 || count < 0
+                || typeRefsOffset + ((long) start + count) * REF_SIZE > buffer.limit()) {
+            throw corruptEntry("type range");
+        }
+
+        List<String> types = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) types.add(readString(typeRefsOffset + (start + i) * REF_SIZE));
+        return Collections.unmodifiableList(types);
+    }
+
+    @Override
+    public Map<String, String> aliases() {
+        return aliasView;
+    }
+
+    @Override
+    public Map<String, String> typePurposes() {
+        return typePurposeView;
+    }
+
+    @Override
+    public Set<String> recordKeys() {
+        return recordKeyView;
+    }
+
+    @Override
+    public Set<String> typedKeys() {
+        Set<String> typed = typedKeys;
+        if (typed == null) {
+            Set<String> collected = new HashSet<>();
+            for (int id = 0; id < keyCount; id++) {
+                if (buffer.getInt(keysOffset + id * KEY_ENTRY_SIZE + 3 * REF_SIZE + 4) > 0) collected.add(keyAt(id));
+            }
+            typed = Collections.unmodifiableSet(collected);
+            typedKeys = typed;
+        }
+        return typed;
+    }
+
+    // Binary search over a table sorted by the string ref at the start of each entry
+    private int search(int tableOffset, int entrySize, int count, String key) {
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(tableOffset + mid * entrySize, key);
+            if (cmp < 0) lo = mid + 1;
+            else if (cmp > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the string at a ref with a key without decoding it
+     * Sorted columns are ASCII (see IngredientDatasetCompiler), so bytes compare like chars
+     */
+    private int compare(int refPosition, String key) {
+        int offset = ref(refPosition);
+        if (offset == -1) throw corruptEntry("sorted key");
+        int length = buffer.getInt(refPosition + 4);
+        int start = stringsOffset + offset;
+        int n = Math.min(length, key.length());
+        for (int i = 0; i < n; i++) {
+            int diff = (buffer.get(start + i) & 0xFF) - key.charAt(i);
+            if (diff != 0) return diff;
+        }
+        return length - key.length();
+    }
+
+    private String readString(int refPosition) {
+        int offset = ref(refPosition);
+        if (offset == -1) return null;
+        int length = buffer.getInt(refPosition + 4);
+
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(stringsOffset + offset);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Map view over the alias or type purpose table; get() is a binary search on the mapped bytes,
+     * iteration materializes a copy once
+     */
+    private final class SortedTableMap extends AbstractMap<String, String> {
+        private final boolean aliasTable;
+        private volatile Map<String, String> materialized;
+
+        SortedTableMap(boolean aliasTable) {
+            this.aliasTable = aliasTable;
+        }
+
+        private int offset() {
+            return aliasTable ? aliasesOffset : typePurposesOffset;
+        }
+
+        private int count() {
+            return aliasTable ? aliasCount : typePurposeCount;
+        }
+
+        @Override
+        public String get(Object key) {
+            if (!(key instanceof String)) return null;
+            int index = search(offset(), PAIR_ENTRY_SIZE, count(), (String) key);
+            return index == -1 ? null : readString(offset() + index * PAIR_ENTRY_SIZE + REF_SIZE);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && search(offset(), PAIR_ENTRY_SIZE, count(), (String) key) != -1;
+        }
+
+        @Override
+        public int size() {
+            return count();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            Map<String, String> copy = materialized;
+            if (copy == null) {
+                copy = new HashMap<>();
+                for (int i = 0; i < count(); i++) {
+                    int entry = offset() + i * PAIR_ENTRY_SIZE;
+                    copy.put(readString(entry), readString(entry + REF_SIZE));
+                }
+                copy = Collections.unmodifiableMap(copy);
+                materialized = copy;
+            }
+            return copy.entrySet();
+        }
+    }
+
+    /**
+     * Record keys in stored tie-break order, decoded as they are iterated
+     */
+    private final class RecordKeySet extends AbstractSet<String> {
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return next < recordCount;
+                }
+
+                @Override
+                public String next() {
+                    if (next >= recordCount) throw new NoSuchElementException();
+                    return keyAt(buffer.getInt(recordOrderOffset + 4 * next++));
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof String)) return false;
+            int id = idOf((String) o);
+            return id != -1 && classificationAt(id) != null;
+        }
+
+        @Override
+        public int size() {
+            return recordCount;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.frank.barcodehealthapp;
+
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.camera.core.ImageProxy;
+
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
+import com.google.mlkit.vision.barcode.BarcodeScanning;
+import com.google.mlkit.vision.barcode.common.Barcode;
+import com.google.mlkit.vision.common.InputImage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FrameDetector backed by a single shared ML Kit client restricted to the formats the app reads
+ * (UPC-A/E, EAN-13/8 for products, QR for Walmart shelf codes); fewer formats means faster detection.
+ * Product codes are canonicalized here, so invalid reads never reach the stability voter or callbacks
+ */
+public final class MlKitBarcodeDetector implements FrameDetector<ImageProxy> {
+
+    private static BarcodeScanner client;
+
+    /**
+     * The shared scanner client, created on first use
+     */
+    public static synchronized BarcodeScanner client() {
+        if (client == null) {
+            client = BarcodeScanning.getClient(new BarcodeScannerOptions.Builder()
+                    .setBarcodeFormats(Barcode.FORMAT_UPC_A, Barcode.FORMAT_UPC_E,
+                            Barcode.FORMAT_EAN_13, Barcode.FORMAT_EAN_8, Barcode.FORMAT_QR_CODE)
+                    .build());
+        }
+        return client;
+    }
+
+    /**
+     * The barcode's canonical lookup code (see Gtin), its raw text for QR codes,
+     * or null for product codes that fail check-digit validation (misreads)
+     */
+    public static String canonicalValue(Barcode barcode) {
+        String rawValue = barcode.getRawValue();
+        if (rawValue == null) return null;
+
+        switch (barcode.getFormat()) {
+            case Barcode.FORMAT_QR_CODE:
+                return rawValue;
+            case Barcode.FORMAT_UPC_E: {
+                long gtin = Gtin.parseUpcE(rawValue);
+                return gtin == Gtin.INVALID ? null : Gtin.toCode(gtin);
+            }
+            default:
+                return Gtin.canonicalize(rawValue);
+        }
+    }
+
+    @Override
+    @OptIn(markerClass = androidx.camera.core.ExperimentalGetImage.class)
+    public void detect(ImageProxy frame, Callback callback) {
+        if (frame.getImage() == null) {
+            callback.onDetected(new ArrayList<String>(0));
+            return;
+        }
+
+        InputImage image = InputImage.fromMediaImage(frame.getImage(), frame.getImageInfo().getRotationDegrees());
+        client().process(image)
+                .addOnSuccessListener(barcodes -> {
+                    List<String> values = new ArrayList<>(barcodes.size());
+                    for (Barcode barcode : barcodes) {
+                        String value = canonicalValue(barcode);
+                        if (value != null) values.add(value);
+                    }
+                    callback.onDetected(values);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e("Scanner", "Detection failed", e);
+                    callback.onFailed(e);
+                });
+    }
+}
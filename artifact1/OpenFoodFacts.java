@@ -0,0 +1,95 @@
+package com.frank.barcodehealthapp;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * OpenFoodFacts v2 product API
+ * Requests only the three fields the app shows and pulls them out of the response with a
+ * streaming reader that stops as soon as all three have been seen, instead of downloading the
+ * full product document and building a JSONObject for it
+ */
+final class OpenFoodFacts {
+
+    static final String PRODUCT_URL = "https://world.openfoodfacts.org/api/v2/product/";
+    static final String FIELDS = "product_name,brands,ingredients_text";
+
+    private static final String DEFAULT_NAME = "Unnamed Product";
+    private static final String DEFAULT_BRAND = "Unknown Brand";
+    private static final String DEFAULT_INGREDIENTS = "No ingredients listed";
+
+    private OpenFoodFacts() {
+    }
+
+    static String productUrl(String barcode) {
+        return PRODUCT_URL + barcode + "?fields=" + FIELDS;
+    }
+
+    /**
+     * Reads a product response; returns null if the product wasn't found (status 0 or no product)
+     * Leaves the stream positioned wherever reading stopped
+     */
+    static ProductInfo readProduct(InputStream in) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("status".equals(name) && reader.peek() == JsonToken.NUMBER) {
+                if (reader.nextInt() != 1) return null;
+            } else if ("product".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                // Only ever present for found products, so there's no need to wait for "status"
+                return readFields(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        return null;
+    }
+
+    private static ProductInfo readFields(JsonReader reader) throws IOException {
+        String productName = null;
+        String brands = null;
+        String ingredients = null;
+        boolean seenName = false;
+        boolean seenBrands = false;
+        boolean seenIngredients = false;
+
+        reader.beginObject();
+        while (!(seenName && seenBrands && seenIngredients) && reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "product_name":
+                    productName = nextStringOrNull(reader);
+                    seenName = true;
+                    break;
+                case "brands":
+                    brands = nextStringOrNull(reader);
+                    seenBrands = true;
+                    break;
+                case "ingredients_text":
+                    ingredients = nextStringOrNull(reader);
+                    seenIngredients = true;
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+
+        return new ProductInfo(
+                productName != null ? productName : DEFAULT_NAME,
+                brands != null ? brands : DEFAULT_BRAND,
+                ingredients != null ? ingredients : DEFAULT_INGREDIENTS);
+    }
+
+    // Strings and numbers as text; JSON null and anything else count as missing
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) return reader.nextString();
+        reader.skipValue();
+        return null;
+    }
+}
@@ -0,0 +1,236 @@
+package com.frank.barcodehealthapp;
+
+import android.content.Context;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent, size-bounded cache of product lookups keyed by the scanned code
+ * - One small file per product under the app's cache dir, written atomically (temp file + rename)
+ * - Entries younger than FRESH_TTL_MS are served without touching the network
+ * - Older entries are still served immediately and refreshed in the background (stale-while-revalidate)
+ * - Any entry, however old, is the fallback when the network is unavailable
+ * - Least recently used entries are evicted past MAX_ENTRIES / MAX_BYTES
+ * The in-memory index is rebuilt from the directory on first use, ordered by file modification time
+ */
+public final class ProductCache {
+
+    static final long FRESH_TTL_MS = 7L * 24 * 60 * 60 * 1000;
+    static final int MAX_ENTRIES = 2000;
+    static final long MAX_BYTES = 4L * 1024 * 1024;
+
+    private static final String DIRECTORY = "products";
+    private static final String SUFFIX = ".prod";
+    private static final int FORMAT = 1;
+
+    private static ProductCache instance;
+
+    private final File directory;
+
+    // key > file size, in access order; guarded by this
+    private Map<String, Long> index;
+    private long totalBytes;
+
+    /**
+     * A cached product and when it was fetched
+     */
+    public static final class Entry {
+        public final ProductInfo product;
+        public final long fetchedAt;
+
+        Entry(ProductInfo product, long fetchedAt) {
+            this.product = product;
+            this.fetchedAt = fetchedAt;
+        }
+
+        public boolean isFresh(long now) {
+            return now - fetchedAt < FRESH_TTL_MS;
+        }
+    }
+
+    ProductCache(File directory) {
+        this.directory = directory;
+    }
+
+    public static synchronized ProductCache get(Context context) {
+        if (instance == null) {
+            instance = new ProductCache(new File(context.getApplicationContext().getCacheDir(), DIRECTORY));
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the cached product for a code, or null. Does disk I/O; call off the main thread
+     */
+    public Entry lookup(String key) {
+        File file = fileFor(key);
+        synchronized (this) {
+            ensureIndex();
+            if (!index.containsKey(key)) return null;
+            index.get(key); // mark as recently used
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT) throw new IOException("Unknown cache format");
+            if (!key.equals(readString(in))) {
+                // Hashed name now holds another key's entry
+                forget(key);
+                return null;
+            }
+            long fetchedAt = in.readLong();
+            ProductInfo product = new ProductInfo(readString(in), readString(in), readString(in));
+            // Persist recency for the next process
+            file.setLastModified(System.currentTimeMillis());
+            return new Entry(product, fetchedAt);
+        } catch (IOException e) {
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Stores a freshly fetched product and evicts least recently used entries if over budget
+     */
+    public void put(String key, ProductInfo product) {
+        File file = fileFor(key);
+        File temp = new File(directory, file.getName() + ".tmp");
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) return;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(FORMAT);
+                writeString(out, key);
+                out.writeLong(System.currentTimeMillis());
+                writeString(out, product.name);
+                writeString(out, product.brand);
+                writeString(out, product.ingredients);
+            }
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                return;
+            }
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+
+        synchronized (this) {
+            ensureIndex();
+            Long previous = index.put(key, file.length());
+            totalBytes += file.length() - (previous == null ? 0 : previous);
+            evict();
+        }
+    }
+
+    public synchronized void remove(String key) {
+        forget(key);
+        fileFor(key).delete();
+    }
+
+    private synchronized void forget(String key) {
+        ensureIndex();
+        Long size = index.remove(key);
+        if (size != null) totalBytes -= size;
+    }
+
+    // Drops least recently used entries until within both budgets; the caller holds the lock
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while ((index.size() > MAX_ENTRIES || totalBytes > MAX_BYTES) && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            totalBytes -= eldest.getValue();
+            fileFor(eldest.getKey()).delete();
+            it.remove();
+        }
+    }
+
+    // Rebuilds the index from disk, oldest access first; the caller holds the lock
+    private void ensureIndex() {
+        if (index != null) return;
+        index = new LinkedHashMap<>(16, 0.75f, true);
+        totalBytes = 0;
+
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+
+        List<File> unreadable = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(SUFFIX)) {
+                unreadable.add(file); // leftover temp files
+                continue;
+            }
+            String key = keyOf(file);
+            if (key == null) {
+                unreadable.add(file);
+                continue;
+            }
+            index.put(key, file.length());
+            totalBytes += file.length();
+        }
+        for (File file : unreadable) file.delete();
+        evict();
+    }
+
+    // Reads just the key back from an entry header
+    private static String keyOf(File file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return in.readInt() == FORMAT ? readString(in) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Barcodes are used as file names directly; anything else (e.g. Walmart QR links) is hashed,
+     * and the key stored inside the file settles collisions
+     */
+    private File fileFor(String key) {
+        boolean plain = !key.isEmpty() && key.length() <= 64;
+        for (int i = 0; i < key.length() && plain; i++) {
+            char c = key.charAt(i);
+            plain = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+        }
+        String name = plain ? key : "h" + Integer.toHexString(key.hashCode());
+        return new File(directory, name + SUFFIX);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) return null;
+        if (length < 0 || length > MAX_BYTES) throw new IOException("Corrupt cache entry");
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,22 @@
+package com.frank.barcodehealthapp;
+
+/**
+ * Product details shown after a scan (name, brand, ingredients)
+ */
+public final class ProductInfo {
+
+    public final String name;
+    public final String brand;
+    public final String ingredients;
+
+    public ProductInfo(String name, String brand, String ingredients) {
+        this.name = name;
+        this.brand = brand;
+        this.ingredients = ingredients;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + brand + ")";
+    }
+}
@@ -0,0 +1,282 @@
+package com.frank.barcodehealthapp;
+
+import java.util.Arrays;
+
+/**
+ * One-time containment index over a fixed key vocabulary
+ * - A generalized suffix automaton answers "which key contains the query"
+ * - An Aho-Corasick automaton answers "which key is contained in the query"
+ * Both run in time proportional to the query length and report the key with the
+ * lowest ordinal, i.e. the first match a linear scan over the vocabulary would return
+ */
+public final class SubstringIndex {
+
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private final int keyCount;
+
+    // Generalized suffix automaton over every key
+    private final Automaton sam = new Automaton();
+    private int[] samLen = new int[16];
+    private int[] samLink = new int[16];
+    private int[] samMinKey;            // lowest ordinal of a key containing the state's strings
+    private int samSize = 0;
+
+    // Aho-Corasick trie over every key
+    private final Automaton trie = new Automaton();
+    private int[] acFail;
+    private int[] acMinKey = new int[16]; // lowest ordinal of a key ending here or at a fail ancestor
+    private int trieSize = 0;
+
+    public SubstringIndex(String[] keys) {
+        keyCount = keys.length;
+        buildSuffixAutomaton(keys);
+        buildAhoCorasick(keys);
+    }
+
+    /**
+     * Returns the lowest ordinal of a key that contains the query, or -1
+     */
+    public int firstKeyContaining(String query) {
+        int state = 0;
+        for (int i = 0; i < query.length(); i++) {
+            state = sam.target(state, query.charAt(i));
+            if (state == -1) return -1;
+        }
+        int min = samMinKey[state];
+        return min == NONE ? -1 : min;
+    }
+
+    /**
+     * Returns the lowest ordinal of a key contained in the query, or -1
+     */
+    public int firstKeyContainedIn(String query) {
+        int best = acMinKey[0];
+        int state = 0;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            int next = trie.target(state, c);
+            while (next == -1 && state != 0) {
+                state = acFail[state];
+                next = trie.target(state, c);
+            }
+            state = next == -1 ? 0 : next;
+            if (acMinKey[state] < best) best = acMinKey[state];
+        }
+        return best == NONE ? -1 : best;
+    }
+
+    /**
+     * Returns the lowest ordinal of a key that contains or is contained in the query, or -1
+     * Equivalent to the first key k in order with k.contains(query) || query.contains(k)
+     */
+    public int firstContainmentMatch(String query) {
+        int a = firstKeyContaining(query);
+        int b = firstKeyContainedIn(query);
+        if (a == -1) return b;
+        if (b == -1) return a;
+        return Math.min(a, b);
+    }
+
+    private void buildSuffixAutomaton(String[] keys) {
+        newSamState(0, -1);
+        for (String key : keys) {
+            int last = 0;
+            for (int i = 0; i < key.length(); i++) last = extend(last, key.charAt(i));
+        }
+
+        // Mark the state of every key prefix; its suffix-link ancestors hold the remaining substrings
+        samMinKey = new int[samSize];
+        Arrays.fill(samMinKey, NONE);
+        if (keyCount > 0) samMinKey[0] = 0;
+        for (int k = 0; k < keys.length; k++) {
+            int state = 0;
+            String key = keys[k];
+            for (int i = 0; i < key.length(); i++) {
+                state = sam.target(state, key.charAt(i));
+                if (k < samMinKey[state]) samMinKey[state] = k;
+            }
+        }
+
+        // Counting sort by length so links are relaxed from longest to shortest state
+        int maxLen = 0;
+        for (int s = 0; s < samSize; s++) maxLen = Math.max(maxLen, samLen[s]);
+        int[] bucket = new int[maxLen + 2];
+        for (int s = 0; s < samSize; s++) bucket[samLen[s] + 1]++;
+        for (int l = 1; l < bucket.length; l++) bucket[l] += bucket[l - 1];
+        int[] order = new int[samSize];
+        for (int s = 0; s < samSize; s++) order[bucket[samLen[s]]++] = s;
+        for (int i = samSize - 1; i > 0; i--) {
+            int s = order[i];
+            int link = samLink[s];
+            if (samMinKey[s] < samMinKey[link]) samMinKey[link] = samMinKey[s];
+        }
+    }
+
+    // Generalized suffix automaton extension that reuses existing transitions across keys
+    private int extend(int last, char c) {
+        int q = sam.target(last, c);
+        if (q != -1) {
+            if (samLen[q] == samLen[last] + 1) return q;
+            int clone = cloneState(q, samLen[last] + 1);
+            for (int p = last; p != -1 && sam.target(p, c) == q; p = samLink[p]) sam.redirect(p, c, clone);
+            samLink[q] = clone;
+            return clone;
+        }
+
+        int cur = newSamState(samLen[last] + 1, 0);
+        int p = last;
+        while (p != -1 && sam.target(p, c) == -1) {
+            sam.add(p, c, cur);
+            p = samLink[p];
+        }
+        if (p == -1) return cur;
+
+        q = sam.target(p, c);
+        if (samLen[p] + 1 == samLen[q]) {
+            samLink[cur] = q;
+        } else {
+            int clone = cloneState(q, samLen[p] + 1);
+            for (; p != -1 && sam.target(p, c) == q; p = samLink[p]) sam.redirect(p, c, clone);
+            samLink[q] = clone;
+            samLink[cur] = clone;
+        }
+        return cur;
+    }
+
+    private int newSamState(int len, int link) {
+        if (samSize == samLen.length) {
+            samLen = Arrays.copyOf(samLen, samSize * 2);
+            samLink = Arrays.copyOf(samLink, samSize * 2);
+        }
+        samLen[samSize] = len;
+        samLink[samSize] = link;
+        sam.newState();
+        return samSize++;
+    }
+
+    private int cloneState(int q, int len) {
+        int clone = newSamState(len, samLink[q]);
+        sam.copyTransitions(q, clone);
+        return clone;
+    }
+
+    private void buildAhoCorasick(String[] keys) {
+        trie.newState();
+        acMinKey[0] = NONE;
+        trieSize = 1;
+
+        for (int k = 0; k < keys.length; k++) {
+            String key = keys[k];
+            int state = 0;
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                int next = trie.target(state, c);
+                if (next == -1) {
+                    next = trieSize++;
+                    trie.newState();
+                    if (next == acMinKey.length) acMinKey = Arrays.copyOf(acMinKey, next * 2);
+                    acMinKey[next] = NONE;
+                    trie.add(state, c, next);
+                }
+                state = next;
+            }
+            if (k < acMinKey[state]) acMinKey[state] = k;
+        }
+
+        // Breadth-first failure links, folding each fail target's output into its dependents
+        acFail = new int[trieSize];
+        int[] queue = new int[trieSize];
+        int head = 0;
+        int tail = 0;
+        for (int e = trie.firstEdge(0); e != -1; e = trie.nextEdge(e)) {
+            int child = trie.edgeTarget(e);
+            acFail[child] = 0;
+            if (acMinKey[0] < acMinKey[child]) acMinKey[child] = acMinKey[0];
+            queue[tail++] = child;
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int e = trie.firstEdge(state); e != -1; e = trie.nextEdge(e)) {
+                char c = trie.edgeChar(e);
+                int child = trie.edgeTarget(e);
+                int f = acFail[state];
+                int next = trie.target(f, c);
+                while (next == -1 && f != 0) {
+                    f = acFail[f];
+                    next = trie.target(f, c);
+                }
+                acFail[child] = next == -1 ? 0 : next;
+                if (acMinKey[acFail[child]] < acMinKey[child]) acMinKey[child] = acMinKey[acFail[child]];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    /**
+     * Compact transition storage: one singly linked edge list per state
+     * Out-degree is bounded by the key alphabet, so a short list walk beats per-state hash maps
+     */
+    private static final class Automaton {
+        private int[] head = new int[16];
+        private int states = 0;
+
+        private char[] edgeChar = new char[16];
+        private int[] edgeTo = new int[16];
+        private int[] edgeNext = new int[16];
+        private int edges = 0;
+
+        void newState() {
+            if (states == head.length) head = Arrays.copyOf(head, states * 2);
+            head[states++] = -1;
+        }
+
+        int target(int state, char c) {
+            for (int e = head[state]; e != -1; e = edgeNext[e]) {
+                if (edgeChar[e] == c) return edgeTo[e];
+            }
+            return -1;
+        }
+
+        void add(int state, char c, int to) {
+            if (edges == edgeTo.length) {
+                edgeChar = Arrays.copyOf(edgeChar, edges * 2);
+                edgeTo = Arrays.copyOf(edgeTo, edges * 2);
+                edgeNext = Arrays.copyOf(edgeNext, edges * 2);
+            }
+            edgeChar[edges] = c;
+            edgeTo[edges] = to;
+            edgeNext[edges] = head[state];
+            head[state] = edges++;
+        }
+
+        void redirect(int state, char c, int to) {
+            for (int e = head[state]; e != -1; e = edgeNext[e]) {
+                if (edgeChar[e] == c) {
+                    edgeTo[e] = to;
+                    return;
+                }
+            }
+        }
+
+        void copyTransitions(int from, int to) {
+            for (int e = head[from]; e != -1; e = edgeNext[e]) add(to, edgeChar[e], edgeTo[e]);
+        }
+
+        int firstEdge(int state) {
+            return head[state];
+        }
+
+        int nextEdge(int edge) {
+            return edgeNext[edge];
+        }
+
+        char edgeChar(int edge) {
+            return edgeChar[edge];
+        }
+
+        int edgeTarget(int edge) {
+            return edgeTo[edge];
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.frank.barcodehealthapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resolves Walmart shelf QR short links (w-mt.co/...) to the product's UPC/GTIN
+ * - One request: the short link's redirects are followed on the same connection that reads the product page
+ * - The page is scanned as it streams in for "gtin13": "<12-14 digits>", and reading stops at the first match
+ * - Resolved links are kept in memory and, when a Context is given, in SharedPreferences,
+ *   so scanning the same QR again never touches the network
+ */
+public final class WalmartQrResolver {
+
+    private static final String PREFS = "walmart_qr_upcs";
+    private static final int MEMORY_CACHE_SIZE = 64;
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final byte[] GTIN_KEY = "\"gtin13\"".getBytes(StandardCharsets.US_ASCII);
+    private static final int MIN_DIGITS = 12;
+    private static final int MAX_DIGITS = 14;
+
+    // short link > UPC, most recently used last
+    private static final Map<String, String> resolved = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MEMORY_CACHE_SIZE;
+        }
+    };
+
+    private WalmartQrResolver() {
+    }
+
+    /**
+     * Resolves a short link using the in-memory cache, then the network
+     * Returns null if no GTIN was found or the request failed
+     */
+    public static String resolve(String walmartUrl) {
+        return resolve(null, walmartUrl);
+    }
+
+    /**
+     * Resolves a short link using the in-memory and persistent caches, then the network
+     */
+    public static String resolve(Context context, String walmartUrl) {
+        String key = cacheKey(walmartUrl);
+        synchronized (resolved) {
+            String upc = resolved.get(key);
+            if (upc != null) return upc;
+        }
+
+        SharedPreferences prefs = context == null ? null
+                : context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        String upc = prefs == null ? null : prefs.getString(key, null);
+
+        if (upc == null) {
+            // Make sure URL is fully qualified (scanned url doesn't contain http prefix by default)
+            String fullUrl = walmartUrl.startsWith("http") ? walmartUrl : "https://" + walmartUrl;
+            try {
+                upc = fetchGtin(fullUrl);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+            if (upc == null) return null;
+            if (prefs != null) prefs.edit().putString(key, upc).apply();
+        }
+
+        synchronized (resolved) {
+            resolved.put(key, upc);
+        }
+        return upc;
+    }
+
+    // Same link with or without the scheme, trailing slash or surrounding whitespace
+    private static String cacheKey(String walmartUrl) {
+        String key = walmartUrl.trim();
+        int scheme = key.indexOf("://");
+        if (scheme != -1) key = key.substring(scheme + 3);
+        while (key.endsWith("/")) key = key.substring(0, key.length() - 1);
+        return key;
+    }
+
+    /**
+     * Follows the short link and streams the product page until the GTIN shows up
+     */
+    private static String fetchGtin(String url) throws IOException {
+        HttpURLConnection conn = HttpTransport.open(url, "User-Agent", "Mozilla/5.0");
+        InputStream in = null;
+        try {
+            if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                // Read out the (usually short) error page in finally, so the socket can be reused
+                in = conn.getErrorStream();
+                return null;
+            }
+            in = HttpTransport.decode(conn, conn.getInputStream());
+            return scanForGtin(in);
+        } finally {
+            // Drains a short remainder back to the keep-alive pool, or disconnects if the page was left half read
+            if (in != null) HttpTransport.finish(conn, in);
+            else conn.disconnect();
+        }
+    }
+
+    /**
+     * Incremental matcher for "gtin13"\s*:\s*"(\d{12,14})" that works across buffer boundaries
+     */
+    static String scanForGtin(InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        char[] digits = new char[MAX_DIGITS];
+        int matched = 0;      // bytes of GTIN_KEY matched so far
+        int stage = 0;        // 0 key, 1 before ':', 2 before opening quote, 3 digits
+        int digitCount = 0;
+        byte previous = 0;
+
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                byte b = buffer[i];
+                if (stage == 1 && b == ':') {
+                    stage = 2;
+                } else if (stage == 2 && b == '"') {
+                    stage = 3;
+                    digitCount = 0;
+                } else if ((stage == 1 || stage == 2) && isSpace(b)) {
+                    // Whitespace around the colon
+                } else if (stage == 3 && b >= '0' && b <= '9' && digitCount < MAX_DIGITS) {
+                    digits[digitCount++] = (char) b;
+                } else if (stage == 3 && b == '"' && digitCount >= MIN_DIGITS) {
+                    return new String(digits, 0, digitCount);
+                } else {
+                    // Looking for the key, or the text after it didn't fit; a quote just before
+                    // this byte (the key's closing or the value's opening quote) may start a new key
+                    if (stage != 0) matched = previous == '"' ? 1 : 0;
+                    stage = 0;
+                    if (b == GTIN_KEY[matched]) matched++;
+                    else matched = b == GTIN_KEY[0] ? 1 : 0;
+                    if (matched == GTIN_KEY.length) {
+                        matched = 0;
+                        stage = 1;
+                    }
+                }
+                previous = b;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+}
@@ -0,0 +1,74 @@
+package com.frank.barcodehealthapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ConfusionCostsTest {
+
+    private static final ConfusionCosts OCR = ConfusionCosts.OCR;
+
+    @Test
+    public void ocrConfusionsAreCheaperThanEdits() {
+        assertEquals(2, EditDistance.weighted("sug0r", "sugor", OCR, 100));
+        assertEquals(3, EditDistance.weighted("cornsyrup", "comsyrup", OCR, 100));
+        assertEquals(ConfusionCosts.EDIT, EditDistance.weighted("sugar", "sugor", OCR, 100));
+        assertEquals(6, EditDistance.weighted("sugar", "sugor", OCR, 5));
+    }
+
+    @Test
+    public void levenshteinBoundIsTight() {
+        // Substitutions cost at least 2 per operation, merges 3 per two operations
+        assertEquals(6, OCR.levenshteinBound(IngredientKnowledgeBase.OCR_MAX_COST));
+        ConfusionCosts substitutionsOnly = new ConfusionCosts.Builder().substitution('o', '0', 5).build();
+        assertEquals(2, substitutionsOnly.levenshteinBound(ConfusionCosts.EDIT));
+    }
+
+    @Test
+    public void levenshteinBoundHoldsForRandomPairs() {
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            String a = randomKey(random);
+            String b = randomKey(random);
+            int weighted = EditDistance.weighted(a, b, OCR, Integer.MAX_VALUE);
+            assertTrue(a + " / " + b, EditDistance.distance(a, b) <= OCR.levenshteinBound(weighted));
+        }
+    }
+
+    @Test
+    public void indexSearchMatchesLinearScan() {
+        Random random = new Random(11);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 400; i++) keys.add(randomKey(random) + "x");
+        IngredientKeyIndex index = new IngredientKeyIndex(keys);
+
+        for (int i = 0; i < 2000; i++) {
+            String query = randomKey(random) + "x";
+            int maxCost = random.nextInt(2 * ConfusionCosts.EDIT);
+
+            String expected = null;
+            int best = maxCost;
+            for (String key : keys) {
+                int cost = EditDistance.weighted(query, key, OCR, Integer.MAX_VALUE);
+                if (cost < best || (cost == best && expected == null)) {
+                    best = cost;
+                    expected = key;
+                }
+            }
+            assertEquals(query, expected, index.nearestWithin(query, OCR, maxCost));
+        }
+    }
+
+    private static String randomKey(Random random) {
+        String alphabet = "aorn0mlb18sicdw";
+        StringBuilder key = new StringBuilder();
+        int length = random.nextInt(9);
+        for (int i = 0; i < length; i++) key.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return key.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package com.frank.barcodehealthapp;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class EditDistanceTest {
+
+    @Test
+    public void boundedMatchesFullTableForShortAndLongStrings() {
+        Random random = new Random(5);
+        for (int i = 0; i < 3000; i++) {
+            // Below 64 chars uses the bit-parallel kernel, both above uses the banded DP
+            String a = randomText(random, i % 2 == 0 ? 40 : 70);
+            String b = random.nextBoolean() ? mutate(random, a) : randomText(random, i % 2 == 0 ? 40 : 70);
+            int expected = reference(a, b);
+            int cap = random.nextInt(expected + 4);
+
+            assertEquals(a + " / " + b, expected, EditDistance.distance(a, b));
+            assertEquals(a + " / " + b + " cap " + cap, expected <= cap ? expected : cap + 1,
+                    EditDistance.bounded(a, b, cap));
+        }
+    }
+
+    @Test
+    public void capsAtBandEdgesAreExact() {
+        String a = repeat("ab", 40);
+        String b = repeat("ba", 40);
+        int d = reference(a, b);
+        assertEquals(2, d);
+        assertEquals(2, EditDistance.bounded(a, b, 2));
+        assertEquals(2, EditDistance.bounded(a, b, 1));
+        assertEquals(1, EditDistance.bounded(a, b, 0));
+        assertEquals(5, EditDistance.bounded(a, a + "xxxxx", 5));
+        assertEquals(5, EditDistance.bounded(a, a + "xxxxx", 4));
+    }
+
+    private static int reference(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) d[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                d[i][j] = Math.min(substitution, 1 + Math.min(d[i - 1][j], d[i][j - 1]));
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private static String randomText(Random random, int minLength) {
+        StringBuilder text = new StringBuilder();
+        int length = minLength + random.nextInt(40);
+        for (int i = 0; i < length; i++) text.append("abcé".charAt(random.nextInt(4)));
+        return text.toString();
+    }
+
+    // A few random edits, so distances near the cap are common
+    private static String mutate(Random random, String text) {
+        StringBuilder out = new StringBuilder(text);
+        int edits = random.nextInt(8);
+        for (int i = 0; i < edits && out.length() > 0; i++) {
+            int at = random.nextInt(out.length());
+            switch (random.nextInt(3)) {
+                case 0: out.deleteCharAt(at); break;
+                case 1: out.insert(at, 'b'); break;
+                default: out.setCharAt(at, 'c');
+            }
+        }
+        return out.toString();
+    }
+
+    private static String repeat(String unit, int times) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < times; i++) out.append(unit);
+        return out.toString();
+    }
+}
@@ -0,0 +1,118 @@
+package com.frank.barcodehealthapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class FrameSchedulerTest {
+
+    private static final long MS = 1_000_000L;
+
+    private static final class Frame implements AutoCloseable {
+        int closed;
+
+        @Override
+        public void close() {
+            closed++;
+        }
+    }
+
+    private static final class FakeClock implements FrameScheduler.Clock {
+        long now;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    // Holds callbacks until the test completes them, like ML Kit finishing later
+    private static final class FakeDetector implements FrameDetector<Frame> {
+        final List<Callback> pending = new ArrayList<>();
+        RuntimeException throwOnDetect;
+
+        @Override
+        public void detect(Frame frame, Callback callback) {
+            if (throwOnDetect != null) throw throwOnDetect;
+            pending.add(callback);
+        }
+
+        void complete(List<String> values) {
+            pending.remove(0).onDetected(values);
+        }
+    }
+
+    private final FakeClock clock = new FakeClock();
+    private final FakeDetector detector = new FakeDetector();
+    private final List<List<String>> results = new ArrayList<>();
+    private final FrameScheduler<Frame> scheduler =
+            new FrameScheduler<>(detector, results::add, 1, clock);
+
+    @Test
+    public void framesArrivingWhileBusyAreClosedUnread() {
+        Frame first = new Frame();
+        Frame second = new Frame();
+        assertTrue(scheduler.offer(first));
+        assertFalse(scheduler.offer(second));
+        assertEquals(0, first.closed);
+        assertEquals(1, second.closed);
+
+        clock.now += 10 * MS;
+        detector.complete(Collections.singletonList("0036000291452"));
+        assertEquals(1, first.closed);
+        assertEquals(1, results.size());
+        assertEquals(1, scheduler.framesProcessed());
+        assertEquals(1, scheduler.framesSkipped());
+    }
+
+    @Test
+    public void dispatchesArePacedToDetectorLatency() {
+        assertTrue(scheduler.offer(new Frame()));
+        clock.now += 100 * MS;
+        detector.complete(Collections.<String>emptyList());
+        assertEquals(100 * MS, scheduler.averageLatencyNanos());
+
+        // 100 ms since the last dispatch: allowed; then 50 ms later: too soon
+        assertTrue(scheduler.offer(new Frame()));
+        clock.now += 50 * MS;
+        detector.complete(Collections.<String>emptyList());
+        Frame early = new Frame();
+        assertFalse(scheduler.offer(early));
+        assertEquals(1, early.closed);
+
+        clock.now += 60 * MS;
+        assertTrue(scheduler.offer(new Frame()));
+    }
+
+    @Test
+    public void failedAndThrowingDetectionsCloseTheFrame() {
+        Frame failing = new Frame();
+        assertTrue(scheduler.offer(failing));
+        detector.pending.remove(0).onFailed(new Exception("detector failed"));
+        assertEquals(1, failing.closed);
+        assertEquals(1, scheduler.framesFailed());
+
+        clock.now += 1000 * MS;
+        detector.throwOnDetect = new IllegalStateException("closed client");
+        Frame throwing = new Frame();
+        try {
+            scheduler.offer(throwing);
+            fail("expected the detector's exception");
+        } catch (IllegalStateException expected) {
+            // rethrown to the analyzer
+        }
+        assertEquals(1, throwing.closed);
+
+        // The slot was released, so the next frame is accepted
+        detector.throwOnDetect = null;
+        clock.now += 1000 * MS;
+        assertTrue(scheduler.offer(new Frame()));
+    }
+}
@@ -0,0 +1,90 @@
+package com.frank.barcodehealthapp;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class FrameStabilityVoterTest {
+
+    private static final String A = "0036000291452";
+    private static final String B = "0012345678905";
+
+    @Test
+    public void reportedOnlyAfterRequiredAgreeingFrames() {
+        FrameStabilityVoter voter = new FrameStabilityVoter(3);
+        assertFalse(frame(voter, A));
+        assertFalse(frame(voter, A));
+        assertTrue(frame(voter, A));
+
+        // Once per appearance, however long it stays in view
+        for (int i = 0; i < 10; i++) assertFalse(frame(voter, A));
+    }
+
+    @Test
+    public void repeatedDetectionInOneFrameCountsOnce() {
+        FrameStabilityVoter voter = new FrameStabilityVoter(2);
+        voter.nextFrame();
+        assertFalse(voter.vote(A));
+        assertFalse(voter.vote(A));
+        assertTrue(frame(voter, A));
+    }
+
+    @Test
+    public void oneMissedFrameCostsAVoteButNotTheScan() {
+        FrameStabilityVoter voter = new FrameStabilityVoter(3);
+        assertFalse(frame(voter, A));
+        assertFalse(frame(voter, A));
+        voter.nextFrame();              // dropout: decays 2 votes to 1
+        assertFalse(frame(voter, A));   // back to 2
+        assertTrue(frame(voter, A));
+
+        // A dropout after reporting doesn't report the same code again
+        voter.nextFrame();
+        assertFalse(frame(voter, A));
+        assertFalse(frame(voter, A));
+    }
+
+    @Test
+    public void switchingBarcodesReportsEachOnce() {
+        FrameStabilityVoter voter = new FrameStabilityVoter(2);
+        assertFalse(frame(voter, A));
+        assertTrue(frame(voter, A));
+
+        assertFalse(frame(voter, B));
+        assertTrue(frame(voter, B));
+
+        // A has decayed away while B was in view, so coming back is a new appearance
+        assertFalse(frame(voter, A));
+        assertTrue(frame(voter, A));
+    }
+
+    @Test
+    public void flickeringBetweenTwoBarcodesIsNeverStable() {
+        FrameStabilityVoter voter = new FrameStabilityVoter(2);
+        for (int i = 0; i < 20; i++) assertFalse(frame(voter, i % 2 == 0 ? A : B));
+    }
+
+    @Test
+    public void resetStartsTheNextScanFresh() {
+        FrameStabilityVoter voter = new FrameStabilityVoter(2);
+        assertFalse(frame(voter, A));
+        assertTrue(frame(voter, A));
+
+        voter.reset();
+        assertFalse(frame(voter, A));
+        assertTrue(frame(voter, A));
+
+        // Votes gathered before a reset don't carry over
+        assertFalse(frame(voter, B));
+        voter.reset();
+        assertFalse(frame(voter, B));
+        assertTrue(frame(voter, B));
+    }
+
+    // Starts a new frame with a single detection
+    private static boolean frame(FrameStabilityVoter voter, String value) {
+        voter.nextFrame();
+        return voter.vote(value);
+    }
+}
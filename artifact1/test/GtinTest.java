@@ -0,0 +1,35 @@
+package com.frank.barcodehealthapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class GtinTest {
+
+    @Test
+    public void upcAndEanSpellingsShareOneCode() {
+        assertEquals("0036000291452", Gtin.canonicalize("036000291452"));
+        assertEquals("0036000291452", Gtin.canonicalize("0036000291452"));
+        assertEquals("0036000291452", Gtin.canonicalize("00036000291452"));
+    }
+
+    @Test
+    public void badCheckDigitIsRejected() {
+        assertEquals(Gtin.INVALID, Gtin.parse("036000291453"));
+        assertNull(Gtin.canonicalize("036000291453"));
+    }
+
+    @Test
+    public void overlongDigitsAreInvalidNotThrown() {
+        assertEquals(Gtin.INVALID, Gtin.parse("12345678901234567890"));
+        assertNull(Gtin.canonicalize("12345678901234567890"));
+        assertEquals(Gtin.INVALID, Gtin.parse("1234567890123456789012345"));
+        assertEquals(-1, LocalProductStore.key("12345678901234567890"));
+    }
+
+    @Test
+    public void nonDigitValuesPassThroughTrimmed() {
+        assertEquals("https://walmart.com/ip/123", Gtin.canonicalize(" https://walmart.com/ip/123 "));
+    }
+}
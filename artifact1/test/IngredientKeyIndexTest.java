@@ -0,0 +1,61 @@
+package com.frank.barcodehealthapp;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class IngredientKeyIndexTest {
+
+    @Test
+    public void nearestMatchesLinearScan() {
+        Random random = new Random(3);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 600; i++) keys.add(randomKey(random));
+        IngredientKeyIndex index = new IngredientKeyIndex(keys);
+
+        for (int i = 0; i < 3000; i++) {
+            String query = randomKey(random);
+            int maxDistance = random.nextInt(6);
+            assertEquals(query, scan(keys, query, maxDistance), index.nearestWithin(query, maxDistance));
+            assertEquals(query, scan(keys, query, Integer.MAX_VALUE), index.nearest(query));
+        }
+    }
+
+    @Test
+    public void degenerateTreesStillSearch() {
+        // One chain of distinct distances, and one root with every other key as a direct child
+        List<String> chain = Arrays.asList("", "a", "aa", "aaa", "aaaa", "aaaaa", "aaaaaa");
+        assertEquals("aaaa", new IngredientKeyIndex(chain).nearest("aaaab"));
+
+        List<String> star = Arrays.asList("abcdef", "abc", "abcd", "ab", "a", "xyz");
+        assertEquals("abcd", new IngredientKeyIndex(star).nearestWithin("abcdx", 1));
+        assertEquals("xyz", new IngredientKeyIndex(star).nearest("xy"));
+        assertEquals(null, new IngredientKeyIndex(new ArrayList<String>()).nearest("xy"));
+    }
+
+    private static String scan(List<String> keys, String query, int maxDistance) {
+        String best = null;
+        int bestDist = maxDistance;
+        for (String key : keys) {
+            int d = EditDistance.distance(query, key);
+            if (d < bestDist || (d == bestDist && best == null)) {
+                bestDist = d;
+                best = key;
+            }
+        }
+        return best;
+    }
+
+    private static String randomKey(Random random) {
+        String alphabet = "sugarolienc";
+        StringBuilder key = new StringBuilder();
+        int length = random.nextInt(10);
+        for (int i = 0; i < length; i++) key.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return key.toString();
+    }
+}
@@ -0,0 +1,110 @@
+package com.frank.barcodehealthapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Imports the small OpenFoodFacts fixture (openfoodfacts-sample.tsv) and reads it back
+ */
+public class LocalProductStoreTest {
+
+    private File dir;
+    private File storeFile;
+    private LocalProductStore store;
+
+    @Before
+    public void importFixture() throws IOException {
+        dir = Files.createTempDirectory("offp").toFile();
+        storeFile = new File(dir, LocalProductStore.FILE_NAME);
+        try (InputStream fixture = getClass().getResourceAsStream("openfoodfacts-sample.tsv")) {
+            assertNotNull("fixture on the test classpath", fixture);
+            assertEquals(4, LocalProductStoreImporter.importExport(fixture, false, storeFile));
+        }
+        store = LocalProductStore.open(storeFile);
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        store.close();
+        LocalProductStore.get(new File(dir, "missing.offp"));   // closes anything get() opened
+        File[] files = dir.listFiles();
+        if (files != null) for (File file : files) file.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void duplicateCodesKeepTheLastRow() throws IOException {
+        ProductInfo product = store.lookup("036000291452");
+        assertEquals("Sparkling Water Lime", product.name);
+        assertEquals("Acme", product.brand);
+        assertEquals("Carbonated water, lime flavor", product.ingredients);
+
+        // Every spelling of the GTIN finds the same record
+        assertEquals("Sparkling Water Lime", store.lookup("0036000291452").name);
+        assertEquals("Sparkling Water Lime", store.lookup("00036000291452").name);
+    }
+
+    @Test
+    public void upcEAndItsUpcAShareARecord() throws IOException {
+        assertEquals("Granola Bar", store.lookup("04252614").name);
+        assertEquals("Granola Bar", store.lookup("042100005264").name);
+    }
+
+    @Test
+    public void badCheckDigitsAreFoundByExactDigitsOnly() throws IOException {
+        assertEquals("Misprinted Code", store.lookup("036000291453").name);
+        assertEquals("Sparkling Water Lime", store.lookup("036000291452").name);
+    }
+
+    @Test
+    public void emptyFieldsAndUnknownCodes() throws IOException {
+        ProductInfo crackers = store.lookup("4006381333931");
+        assertEquals("Plain Crackers", crackers.name);
+        assertNull(crackers.brand);
+        assertNull(crackers.ingredients);
+
+        assertNull(store.lookup("5000112548167"));
+        assertNull(store.lookup("12345678901234567890"));
+        assertNull(store.lookup("not-a-code"));
+    }
+
+    @Test
+    public void getReopensWhenTheFileChanges() throws IOException {
+        File other = new File(dir, "other.offp");
+        assertNull(LocalProductStore.get(other));
+
+        String export = "code\tproduct_name\n4006381333931\tFirst Import\n";
+        LocalProductStoreImporter.importExport(stream(export), false, other);
+        LocalProductStore first = LocalProductStore.get(other);
+        assertEquals("First Import", first.lookup("4006381333931").name);
+        assertSame(first, LocalProductStore.get(other));
+
+        export = "code\tproduct_name\n4006381333931\tSecond Import\n036000291452\tWater\n";
+        LocalProductStoreImporter.importExport(stream(export), false, other);
+        other.setLastModified(other.lastModified() + 2000);
+        LocalProductStore second = LocalProductStore.get(other);
+        assertNotSame(first, second);
+        assertEquals("Second Import", second.lookup("4006381333931").name);
+
+        other.delete();
+        assertNull(LocalProductStore.get(other));
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
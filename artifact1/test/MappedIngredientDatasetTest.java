@@ -0,0 +1,104 @@
+package com.frank.barcodehealthapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class MappedIngredientDatasetTest {
+
+    private byte[] dataset;
+
+    @Before
+    public void compileSmallDataset() throws IOException {
+        IngredientKnowledgeBase.Builder builder = new IngredientKnowledgeBase.Builder();
+        builder.addAlias("cane sugar", "sugar");
+        builder.addRecord("sugar", "Safe", "Sweetener");
+        builder.addRecord("citric acid", "Safe", null);
+        builder.addType("Sweetener", "Adds sweetness");
+        builder.addTypeMember("Sweetener", "sugar");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IngredientDatasetCompiler.compile(builder.build().store(), out);
+        dataset = out.toByteArray();
+    }
+
+    @Test
+    public void validDatasetReadsBack() throws IOException {
+        MappedIngredientDataset store = MappedIngredientDataset.wrap(ByteBuffer.wrap(dataset));
+        int sugar = store.idOf("sugar");
+        assertEquals("Sweetener", store.descriptionAt(sugar));
+        assertEquals(Collections.singletonList("Sweetener"), store.typesAt(sugar));
+        assertEquals("sugar", store.aliases().get("canesugar"));
+    }
+
+    @Test
+    public void everyTruncationIsAnIOException() {
+        for (int length = 0; length < dataset.length; length++) {
+            expectCorrupt(Arrays.copyOf(dataset, length));
+        }
+    }
+
+    @Test
+    public void outOfRangeOffsetsAreIOExceptions() {
+        // Each header int (after magic and version) set far out of range, then negative
+        for (int field = 8; field < MappedIngredientDataset.HEADER_SIZE; field += 4) {
+            for (int value : new int[]{Integer.MAX_VALUE / 2, -8}) {
+                byte[] corrupt = dataset.clone();
+                ByteBuffer.wrap(corrupt).putInt(field, value);
+                expectCorrupt(corrupt);
+            }
+        }
+
+        // The first key's string ref pointing past the string pool
+        byte[] corrupt = dataset.clone();
+        ByteBuffer buffer = ByteBuffer.wrap(corrupt);
+        buffer.putInt(buffer.getInt(24), Integer.MAX_VALUE / 2);
+        expectCorrupt(corrupt);
+    }
+
+    @Test
+    public void flippedBodyByteFailsTheChecksum() {
+        for (int i = MappedIngredientDataset.HEADER_SIZE; i < dataset.length; i++) {
+            byte[] corrupt = dataset.clone();
+            corrupt[i] ^= 0x20;
+            expectCorrupt(corrupt);
+        }
+    }
+
+    @Test
+    public void badEntryBehindValidChecksumFailsWhenRead() throws IOException {
+        // A compiler bug rather than a damaged file: the entry is only checked when it is read
+        ByteBuffer buffer = ByteBuffer.wrap(dataset.clone());
+        int keys = buffer.getInt(24);
+        buffer.putInt(keys + MappedIngredientDataset.REF_SIZE + 4, Integer.MAX_VALUE / 2);
+        buffer.putInt(MappedIngredientDataset.CHECKSUM_OFFSET, MappedIngredientDataset.checksum(buffer));
+
+        MappedIngredientDataset store = MappedIngredientDataset.wrap(buffer);
+        assertEquals("Adds sweetness", store.typePurposes().get("sweetener"));
+        try {
+            store.classificationAt(0);
+            fail("read a string past the pool");
+        } catch (IllegalStateException expected) {
+            // reported as a corrupt entry, not a buffer exception
+        }
+    }
+
+    private static void expectCorrupt(byte[] bytes) {
+        try {
+            MappedIngredientDataset.wrap(ByteBuffer.wrap(bytes));
+            fail("accepted a corrupt dataset of " + bytes.length + " bytes");
+        } catch (IOException expected) {
+            // falls back to JSON
+        } catch (RuntimeException e) {
+            fail("threw " + e + " instead of an IOException");
+        }
+    }
+}
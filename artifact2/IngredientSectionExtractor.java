@@ -0,0 +1,120 @@
+package com.frank.barcodehealthapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Finds the ingredient list in recognized label text in one linear pass
+ * - The section starts on the first line containing "ingredient"; text after that line's first
+ *   colon is kept
+ * - It ends at the first following line that contains a stop phrase, is blank, or is just "." or ")"
+ * The start phrase and all stop phrases are matched together by one Aho-Corasick automaton,
+ * built once, so every character is looked at once and no regex runs per line.
+ * Plain Java so it can be tested and benchmarked off-device
+ */
+public final class IngredientSectionExtractor {
+
+    public static final String START_PHRASE = "ingredient";
+
+    /**
+     * Words that commonly come after ingredient lists
+     */
+    public static final List<String> DEFAULT_STOP_PHRASES = Collections.unmodifiableList(Arrays.asList(
+            "distributed", "manufactured", "guarantee", "quality", "price", "walmart", "value",
+            "product of", "nutrition", "percent", "guaranteed", "contact", "phone", "address", "satisfaction"));
+
+    public static final IngredientSectionExtractor DEFAULT = new IngredientSectionExtractor(DEFAULT_STOP_PHRASES);
+
+    private static final int START = 1;
+    private static final int STOP = 2;
+
+    private final List<String> stopPhrases;
+    private final PhraseAutomaton automaton;
+
+    public IngredientSectionExtractor(Collection<String> stopPhrases) {
+        List<String> phrases = new ArrayList<>();
+        List<Integer> flags = new ArrayList<>();
+        phrases.add(START_PHRASE);
+        flags.add(START);
+        for (String phrase : stopPhrases) {
+            String lower = phrase.toLowerCase(Locale.ROOT).trim();
+            if (lower.isEmpty()) continue;
+            phrases.add(lower);
+            flags.add(STOP);
+        }
+        this.stopPhrases = Collections.unmodifiableList(new ArrayList<>(phrases.subList(1, phrases.size())));
+        this.automaton = new PhraseAutomaton(phrases, flags);
+    }
+
+    /**
+     * A copy that also ends the section at the given phrases (case-insensitive)
+     */
+    public IngredientSectionExtractor withStopPhrases(String... extra) {
+        List<String> phrases = new ArrayList<>(stopPhrases);
+        phrases.addAll(Arrays.asList(extra));
+        return new IngredientSectionExtractor(phrases);
+    }
+
+    public List<String> getStopPhrases() {
+        return stopPhrases;
+    }
+
+    /**
+     * Returns the ingredient section with lines joined by single spaces, or "" if there is none
+     */
+    public String extract(String text) {
+        StringBuilder section = new StringBuilder();
+        boolean inIngredients = false;
+
+        int n = text.length();
+        int lineStart = 0;
+        while (lineStart <= n) {
+            // Scan one line: automaton flags, first colon and trimmed bounds
+            int state = PhraseAutomaton.ROOT;
+            int seen = 0;
+            int colon = -1;
+            int first = -1;
+            int last = -1;
+            int i = lineStart;
+            for (; i < n; i++) {
+                char c = text.charAt(i);
+                if (c == '\n') break;
+                if (c > ' ') {
+                    if (first == -1) first = i;
+                    last = i;
+                }
+                if (c == ':' && colon == -1) colon = i;
+                state = automaton.step(state, Character.toLowerCase(c));
+                seen |= automaton.flags(state);
+            }
+            int lineEnd = i > lineStart && text.charAt(i - 1) == '\r' ? i - 1 : i;
+            boolean lastLine = i >= n;
+
+            if (!inIngredients) {
+                if ((seen & START) != 0) {
+                    inIngredients = true;
+                    if (colon != -1 && colon < lineEnd - 1) appendTrimmed(section, text, colon + 1, lineEnd);
+                }
+            } else {
+                if ((seen & STOP) != 0 || first == -1) break;
+                if (first == last && (text.charAt(first) == '.' || text.charAt(first) == ')')) break;
+                section.append(text, first, last + 1).append(' ');
+            }
+
+            if (lastLine) break;
+            lineStart = i + 1;
+        }
+        // Returns only text from ingredients list (ideally)
+        return section.toString().trim();
+    }
+
+    private static void appendTrimmed(StringBuilder out, String text, int from, int to) {
+        while (from < to && text.charAt(from) <= ' ') from++;
+        while (to > from && text.charAt(to - 1) <= ' ') to--;
+        if (to > from) out.append(text, from, to).append(' ');
+    }
+}
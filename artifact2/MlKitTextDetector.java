@@ -0,0 +1,60 @@
+package com.frank.barcodehealthapp;
+
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.camera.core.ImageProxy;
+
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.text.Text;
+import com.google.mlkit.vision.text.TextRecognition;
+import com.google.mlkit.vision.text.TextRecognizer;
+import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Text recognition on live CameraX frames, reported as the frame's text lines in reading order
+ * A FrameDetector, so live OCR reuses FrameScheduler's pacing and frame closing
+ */
+public final class MlKitTextDetector implements FrameDetector<ImageProxy> {
+
+    private static TextRecognizer client;
+
+    /**
+     * The shared text recognizer client, created on first use
+     */
+    public static synchronized TextRecognizer client() {
+        if (client == null) {
+            client = TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
+        }
+        return client;
+    }
+
+    @Override
+    @OptIn(markerClass = androidx.camera.core.ExperimentalGetImage.class)
+    public void detect(ImageProxy frame, Callback callback) {
+        if (frame.getImage() == null) {
+            callback.onDetected(new ArrayList<String>(0));
+            return;
+        }
+
+        // The camera's YUV buffer goes straight to the recognizer; no JPEG or Bitmap in between
+        InputImage image = InputImage.fromMediaImage(frame.getImage(), frame.getImageInfo().getRotationDegrees());
+        client().process(image)
+                .addOnSuccessListener(text -> callback.onDetected(lines(text)))
+                .addOnFailureListener(e -> {
+                    Log.e("OCR", "Text recognition failed", e);
+                    callback.onFailed(e);
+                });
+    }
+
+    private static List<String> lines(Text text) {
+        List<String> lines = new ArrayList<>();
+        for (Text.TextBlock block : text.getTextBlocks()) {
+            for (Text.Line line : block.getLines()) lines.add(line.getText());
+        }
+        return lines;
+    }
+}
@@ -7,43 +7,95 @@ import android.graphics.BitmapFactory;
 import android.os.Environment;
 import android.provider.MediaStore;
 import android.net.Uri;
+import android.util.Size;
 import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
+import androidx.camera.core.ImageProxy;
 import androidx.camera.view.PreviewView;
 import androidx.core.content.FileProvider;
 
 import com.google.mlkit.vision.common.InputImage;
-import com.google.mlkit.vision.text.TextRecognition;
-import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Handles camera capture and OCR ingredient list extraction for offline use
+ * Either from a photo taken with the camera app (startOCRPrompt) or from the live preview (startLiveOCR)
  * Trims extracted text and fixes the "letters recognized as numbers" issue (o=0, 3=E, 8=B etc)
+ * where the fix matches a known ingredient
  */
 public class OCRManager {
 
     public interface OCRCallback {
-        void onIngredientsExtracted(@NonNull String ingredientText);
+        /**
+         * @deprecated Implement {@link #onIngredientsExtracted(String, IngredientKnowledgeBase)}, which also
+         * receives the knowledge base this text has to be matched against
+         */
+        @Deprecated
+        default void onIngredientsExtracted(@NonNull String ingredientText) {
+        }
+
+        /**
+         * Called on the main thread with the corrected ingredient section
+         * knowledgeBase is the OCR view (see getKnowledgeBase); render ingredientText with it, not the
+         * shared knowledge base, so fuzzy matches use OCR confusion costs
+         */
+        default void onIngredientsExtracted(@NonNull String ingredientText, @NonNull IngredientKnowledgeBase knowledgeBase) {
+            onIngredientsExtracted(ingredientText);
+        }
+
         void onFailure(Exception e);
     }
 
+    // Live OCR asks for larger analysis frames than barcode scanning; small label text needs the pixels
+    private static final Size LIVE_RESOLUTION = new Size(1280, 720);
+
+    // Consecutive frames the merged ingredient section must stay unchanged before it is reported
+    private static final int LIVE_STABLE_FRAMES = 3;
+
+    // Builds the OcrCorrector vocabulary and corrects recognized text off the main thread
+    private static final ExecutorService correctionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ocr-corrector");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
     private final Activity activity;
     private final OCRCallback callback;
+    private final PreviewView previewView;
     private final ActivityResultLauncher<Intent> cameraLauncher;
 
+    // Live OCR: one recognition at a time on the latest frame, lines merged across frames (main thread only)
+    private final FrameScheduler<ImageProxy> liveScheduler;
+    private final OcrFrameMerger liveMerger = new OcrFrameMerger();
+    private volatile boolean liveActive = false;
+    private String liveSection = "";
+    private int liveStableFrames = 0;
+
     private File photoFile;
 
+    // Finds where the ingredient list starts and ends in the recognized text
+    private IngredientSectionExtractor sectionExtractor = IngredientSectionExtractor.DEFAULT;
+
     public OCRManager(@NonNull Activity activity,
                       @NonNull OCRCallback callback,
                       @NonNull PreviewView lifecycleOwner) {
         this.activity = activity;
         this.callback = callback;
+        this.previewView = lifecycleOwner;
+        this.liveScheduler = new FrameScheduler<>(new MlKitTextDetector(), this::onLiveFrame, 1);
+
+        // Build the corrector's trie once the knowledge base is loaded, before the first OCR result needs it
+        IngredientDataLoader.warmUp(activity,
+                kb -> correctionExecutor.execute(() -> OcrCorrector.forKnowledgeBase(kb)));
 
         cameraLauncher = ((androidx.activity.ComponentActivity) activity)
                 .registerForActivityResult(
@@ -80,12 +132,57 @@ public class OCRManager {
         }
     }
 
+    /**
+     * Reads the ingredient list from the live camera preview instead of a captured photo
+     * Analysis frames go straight to text recognition, with no JPEG file or Bitmap decode; lines are
+     * merged across frames and the ingredient section is reported once it stops changing.
+     * Rebinds the camera through BarcodeManager.startCamera, so restart barcode scanning afterwards
+     */
+    public void startLiveOCR(ExecutorService executor) {
+        liveMerger.reset();
+        liveSection = "";
+        liveStableFrames = 0;
+        liveActive = true;
+        BarcodeManager.startCamera(activity, previewView, executor, this::analyzeLiveFrame, LIVE_RESOLUTION);
+    }
+
+    /**
+     * Stops live OCR without reporting; later frames are closed unread
+     */
+    public void stopLiveOCR() {
+        liveActive = false;
+    }
+
+    private void analyzeLiveFrame(ImageProxy frame) {
+        if (liveActive) liveScheduler.offer(frame);
+        else frame.close();
+    }
+
+    // Called on the main thread with each recognized frame's lines
+    private void onLiveFrame(List<String> lines) {
+        // Frames without an image or without any text say nothing about stability
+        if (!liveActive || lines.isEmpty()) return;
+
+        liveMerger.add(lines);
+        String section = extractIngredientsSection(liveMerger.text());
+        if (section.isEmpty() || !section.equals(liveSection)) {
+            liveSection = section;
+            liveStableFrames = 0;
+            return;
+        }
+
+        if (++liveStableFrames >= LIVE_STABLE_FRAMES) {
+            liveActive = false;
+            deliver(section);
+        }
+    }
+
     /**
      * Run ML Kit OCR and extract ingredient section
      */
     private void runOCR(Bitmap bitmap) {
         InputImage image = InputImage.fromBitmap(bitmap, 0);
-        TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS)
+        MlKitTextDetector.client()
                 .process(image)
                 .addOnSuccessListener(result -> {
                     String fullText = result.getText();
@@ -93,8 +190,7 @@ public class OCRManager {
                     if (filtered.isEmpty()) {
                         callback.onFailure(new Exception("Could not find ingredients section"));
                     } else {
-                        String cleaned = numberLetterSwap(filtered);
-                        callback.onIngredientsExtracted(cleaned);
+                        deliver(filtered);
                     }
                 })
                 .addOnFailureListener(callback::onFailure);
@@ -105,52 +201,38 @@ public class OCRManager {
      * Ignores text prior to reading the word "ingredient" which signals the start of "Ingredients:" list
      */
     private String extractIngredientsSection(String text) {
-        String[] lines = text.split("\\r?\\n");
-        StringBuilder ingredientsSection = new StringBuilder();
-        boolean inIngredients = false;
-
-        for (String line : lines) {
-            String lower = line.toLowerCase().trim();
-
-            // Start section if "ingredient" found
-            if (!inIngredients && lower.contains("ingredient")) {
-                inIngredients = true;
-                int colon = line.indexOf(":");
-                if (colon != -1 && colon < line.length() - 1) {
-                    String afterColon = line.substring(colon + 1).trim();
-                    if (!afterColon.isEmpty()) ingredientsSection.append(afterColon).append(" ");
-                }
-                continue;
-            }
-
-            if (inIngredients) {
-                // End when finding words that commonly come after ingredient lists
-                if (
-                        lower.matches(".*(distributed|manufactured|guarantee|quality|price|walmart|value|product of|nutrition|percent|guaranteed|contact|phone|address|satisfaction).*")
-                                || lower.isEmpty()
-                ) {
-                    break;
-                }
-                if (lower.equals(".") || lower.equals(")")) break;
-
-                ingredientsSection.append(line.trim()).append(" ");
-            }
-        }
-        // Returns only text from ingredients list (ideally)
-        return ingredientsSection.toString().trim();
+        return sectionExtractor.extract(text);
+    }
+
+    /**
+     * Also end the ingredient section at these phrases (e.g. store-specific label text)
+     */
+    public void addStopPhrases(String... phrases) {
+        sectionExtractor = sectionExtractor.withStopPhrases(phrases);
+    }
+
+    /**
+     * Knowledge base view for text from this manager: fuzzy matches weigh OCR confusions (o/0, rn/m, B/8)
+     * as cheap and stop at a tighter threshold instead of falling back to the absolute closest ingredient
+     */
+    public IngredientKnowledgeBase getKnowledgeBase() {
+        return IngredientDataLoader.getKnowledgeBase(activity).forOcrText();
+    }
+
+    // Fixes confusions on the correction thread, then reports the section and its OCR view on the main thread
+    private void deliver(String section) {
+        correctionExecutor.execute(() -> {
+            IngredientKnowledgeBase kb = IngredientDataLoader.getKnowledgeBase(activity);
+            String cleaned = fixConfusions(section, kb);
+            IngredientKnowledgeBase ocrView = kb.forOcrText();
+            activity.runOnUiThread(() -> callback.onIngredientsExtracted(cleaned, ocrView));
+        });
     }
 
-    // Swaps of common OCR digit/letter errors (ocr mistakes o for 0, fixes that)
-    private String numberLetterSwap(String text) {
-        return text
-                .replace('8', 'B')
-                .replace('0', 'O')
-                .replace('1', 'I')
-                .replace('5', 'S')
-                .replace('6', 'G')
-                .replace('4', 'A')
-                .replace('2', 'Z')
-                .replace('3', 'E');
+    // Fixes OCR digit/letter errors that complete a known ingredient (E15O -> E150, SUG4R -> SUGAR)
+    // Runs on the correction thread, so it may wait for the knowledge base and build the corrector
+    private String fixConfusions(String text, IngredientKnowledgeBase kb) {
+        return OcrCorrector.forKnowledgeBase(kb).correct(text);
     }
 
 }
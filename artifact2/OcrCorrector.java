@@ -0,0 +1,316 @@
+package com.frank.barcodehealthapp;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Fixes OCR digit/letter confusions (0/O, 1/I/L, 5/S, 8/B, 6/G, 4/A, 2/Z, 3/E) only where the fix
+ * turns the text into a known ingredient, instead of swapping every digit in the text
+ *
+ * The vocabulary is a trie over compact keys (lowercase letters and digits, no spaces, the same
+ * form as the knowledge base keys), so "CITRIC AC1D" can match "citricacid".
+ * For each run of whitespace-separated tokens, a beam search walks the trie trying each character
+ * as read and as its confusions; the longest span of up to MAX_SPAN_TOKENS tokens that ends on a
+ * vocabulary key (then the one with fewest substitutions) wins, and only its substituted characters
+ * are rewritten. Everything else, including "B12", "E150a", "Red 40" and "2%", is left as read.
+ * Letters are only turned into digits inside tokens that already contain a digit.
+ *
+ * One pass over the text; working arrays are allocated once per corrector.
+ * Not thread-safe beyond correct() being synchronized
+ */
+public final class OcrCorrector {
+
+    static final int BEAM_WIDTH = 8;
+    static final int MAX_EDITS = 3;
+    static final int MAX_SPAN_TOKENS = 4;
+    static final int MAX_SPAN_CHARS = 64;
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    private static OcrCorrector cached;
+    private static Object cachedSource;
+
+    // Trie as first-child / next-sibling lists
+    private int[] firstChild = new int[256];
+    private int[] nextSibling = new int[256];
+    private char[] label = new char[256];
+    private boolean[] terminal = new boolean[256];
+    private int nodeCount = 1;
+
+    // Beam history: per step, each entry's node, cost, parent entry and chosen character
+    private final int[][] beamNode = new int[MAX_SPAN_CHARS + 1][BEAM_WIDTH];
+    private final int[][] beamCost = new int[MAX_SPAN_CHARS + 1][BEAM_WIDTH];
+    private final int[][] beamParent = new int[MAX_SPAN_CHARS + 1][BEAM_WIDTH];
+    private final char[][] beamChar = new char[MAX_SPAN_CHARS + 1][BEAM_WIDTH];
+    private final int[] beamSize = new int[MAX_SPAN_CHARS + 1];
+    private final int[] stepPosition = new int[MAX_SPAN_CHARS + 1];
+
+    // Candidate scratch for one step
+    private final int[] candidateNode = new int[BEAM_WIDTH * 3];
+    private final int[] candidateCost = new int[BEAM_WIDTH * 3];
+    private final int[] candidateParent = new int[BEAM_WIDTH * 3];
+    private final char[] candidateChar = new char[BEAM_WIDTH * 3];
+
+    public OcrCorrector(Collection<String> vocabulary) {
+        firstChild[0] = -1;
+        for (String word : vocabulary) insert(word);
+    }
+
+    /**
+     * Corrector over a knowledge base's canonical, alias and typed keys plus E-numbers,
+     * cached for the most recent knowledge base
+     * The first call per knowledge base builds the trie (thousands of keys), so make it off the main thread
+     */
+    public static synchronized OcrCorrector forKnowledgeBase(IngredientKnowledgeBase kb) {
+        if (cached == null || cachedSource != kb) {
+            Set<String> vocabulary = new HashSet<>(kb.getRecordKeys());
+            vocabulary.addAll(kb.getAliasMap().keySet());
+            vocabulary.addAll(kb.getTypedKeys());
+            addENumbers(vocabulary);
+            cached = new OcrCorrector(vocabulary);
+            cachedSource = kb;
+        }
+        return cached;
+    }
+
+    // E100-E1599 with optional a-d suffixes (e.g. e150a), in the compact key form
+    private static void addENumbers(Set<String> vocabulary) {
+        for (int n = 100; n < 1600; n++) {
+            vocabulary.add("e" + n);
+            for (char suffix = 'a'; suffix <= 'd'; suffix++) vocabulary.add("e" + n + suffix);
+        }
+    }
+
+    private void insert(String word) {
+        int node = 0;
+        boolean any = false;
+        for (int i = 0; i < word.length(); i++) {
+            char c = Character.toLowerCase(word.charAt(i));
+            if (!isKeyChar(c)) continue;
+            node = childOrCreate(node, c);
+            any = true;
+        }
+        if (any) terminal[node] = true;
+    }
+
+    private int childOrCreate(int node, char c) {
+        int child = child(node, c);
+        if (child != -1) return child;
+
+        if (nodeCount == label.length) {
+            int size = nodeCount * 2;
+            firstChild = Arrays.copyOf(firstChild, size);
+            nextSibling = Arrays.copyOf(nextSibling, size);
+            label = Arrays.copyOf(label, size);
+            terminal = Arrays.copyOf(terminal, size);
+        }
+        child = nodeCount++;
+        label[child] = c;
+        firstChild[child] = -1;
+        nextSibling[child] = firstChild[node];
+        firstChild[node] = child;
+        return child;
+    }
+
+    private int child(int node, char c) {
+        for (int child = firstChild[node]; child != -1; child = nextSibling[child]) {
+            if (label[child] == c) return child;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the text with confusions fixed where they complete a vocabulary key
+     */
+    public synchronized String correct(String text) {
+        char[] out = null;
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            if (!isWordChar(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int end = search(text, i);
+            if (end > i) {
+                // Apply the winning path's substitutions, if any
+                int step = bestStep;
+                int entry = bestEntry;
+                while (step > 0) {
+                    int position = stepPosition[step];
+                    char chosen = beamChar[step][entry];
+                    char original = text.charAt(position);
+                    if (Character.toLowerCase(original) != chosen) {
+                        if (out == null) out = text.toCharArray();
+                        out[position] = Character.isLetter(chosen) && upperCaseToken(text, position)
+                                ? Character.toUpperCase(chosen) : chosen;
+                    }
+                    entry = beamParent[step][entry];
+                    step--;
+                }
+                i = end;
+            } else {
+                i = tokenEnd(text, i);
+            }
+        }
+        return out == null ? text : new String(out);
+    }
+
+    // Result of the last search(): final step and beam entry of the best path
+    private int bestStep;
+    private int bestEntry;
+
+    /**
+     * Beam search from the token at start; returns the end of the best matching span, or start if none
+     */
+    private int search(String text, int start) {
+        beamNode[0][0] = 0;
+        beamCost[0][0] = 0;
+        beamSize[0] = 1;
+
+        int steps = 0;
+        int bestEnd = start;
+        int bestCost = Integer.MAX_VALUE;
+        int position = start;
+
+        for (int token = 0; token < MAX_SPAN_TOKENS; token++) {
+            int tokenEnd = tokenEnd(text, position);
+            boolean allowDigits = containsDigit(text, position, tokenEnd);
+
+            for (int p = position; p < tokenEnd; p++) {
+                if (steps == MAX_SPAN_CHARS) return bestEnd;
+                if (!expand(steps, Character.toLowerCase(text.charAt(p)), allowDigits)) return bestEnd;
+                steps++;
+                stepPosition[steps] = p;
+            }
+
+            // Longest span wins; among equal spans, fewest substitutions
+            for (int e = 0; e < beamSize[steps]; e++) {
+                if (terminal[beamNode[steps][e]] && (tokenEnd > bestEnd || beamCost[steps][e] < bestCost)) {
+                    bestEnd = tokenEnd;
+                    bestCost = beamCost[steps][e];
+                    bestStep = steps;
+                    bestEntry = e;
+                }
+            }
+
+            // Continue into the next token only across plain whitespace
+            int next = tokenEnd;
+            while (next < text.length() && Character.isWhitespace(text.charAt(next))) next++;
+            if (next == tokenEnd || next >= text.length() || !isWordChar(text.charAt(next))) break;
+            position = next;
+        }
+        return bestEnd;
+    }
+
+    /**
+     * Extends every entry of the beam at `step` by one character, as read or as a confusion
+     * Keeps the BEAM_WIDTH cheapest extensions; returns false if none survive
+     */
+    private boolean expand(int step, char c, boolean allowDigits) {
+        int candidates = 0;
+        for (int e = 0; e < beamSize[step]; e++) {
+            int node = beamNode[step][e];
+            int cost = beamCost[step][e];
+            candidates = offer(candidates, node, c, cost, e);
+            if (cost < MAX_EDITS) {
+                char first = confusion(c, 0, allowDigits);
+                if (first != 0) candidates = offer(candidates, node, first, cost + 1, e);
+                char second = confusion(c, 1, allowDigits);
+                if (second != 0) candidates = offer(candidates, node, second, cost + 1, e);
+            }
+        }
+
+        // Keep the cheapest, in order of appearance within a cost
+        int kept = 0;
+        for (int cost = 0; cost <= MAX_EDITS && kept < BEAM_WIDTH; cost++) {
+            for (int k = 0; k < candidates && kept < BEAM_WIDTH; k++) {
+                if (candidateCost[k] != cost) continue;
+                beamNode[step + 1][kept] = candidateNode[k];
+                beamCost[step + 1][kept] = cost;
+                beamParent[step + 1][kept] = candidateParent[k];
+                beamChar[step + 1][kept] = candidateChar[k];
+                kept++;
+            }
+        }
+        beamSize[step + 1] = kept;
+        return kept > 0;
+    }
+
+    private int offer(int candidates, int node, char c, int cost, int parent) {
+        int child = child(node, c);
+        if (child == -1) return candidates;
+        candidateNode[candidates] = child;
+        candidateCost[candidates] = cost;
+        candidateParent[candidates] = parent;
+        candidateChar[candidates] = c;
+        return candidates + 1;
+    }
+
+    /**
+     * The index-th alternative reading of a (lowercase) character, or 0
+     */
+    static char confusion(char c, int index, boolean allowDigits) {
+        switch (c) {
+            case '0': return index == 0 ? 'o' : 0;
+            case '1': return index == 0 ? 'i' : 'l';
+            case '2': return index == 0 ? 'z' : 0;
+            case '3': return index == 0 ? 'e' : 0;
+            case '4': return index == 0 ? 'a' : 0;
+            case '5': return index == 0 ? 's' : 0;
+            case '6': return index == 0 ? 'g' : 0;
+            case '8': return index == 0 ? 'b' : 0;
+        }
+        if (!allowDigits || index != 0) return 0;
+        switch (c) {
+            case 'o': return '0';
+            case 'i':
+            case 'l': return '1';
+            case 'z': return '2';
+            case 'e': return '3';
+            case 'a': return '4';
+            case 's': return '5';
+            case 'g': return '6';
+            case 'b': return '8';
+            default: return 0;
+        }
+    }
+
+    private static boolean isKeyChar(char c) {
+        return (c >= '0' && c <= '9') || LETTERS.indexOf(c) != -1;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    private static int tokenEnd(String text, int start) {
+        int end = start;
+        while (end < text.length() && isWordChar(text.charAt(end))) end++;
+        return end;
+    }
+
+    private static boolean containsDigit(String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (Character.isDigit(text.charAt(i))) return true;
+        }
+        return false;
+    }
+
+    // Label text is often all caps; a token with more upper- than lowercase letters gets uppercase fixes
+    private static boolean upperCaseToken(String text, int position) {
+        int start = position;
+        while (start > 0 && isWordChar(text.charAt(start - 1))) start--;
+        int end = tokenEnd(text, position);
+        int upper = 0;
+        int lower = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isUpperCase(c)) upper++;
+            else if (Character.isLowerCase(c)) lower++;
+        }
+        return upper >= lower;
+    }
+}
@@ -0,0 +1,122 @@
+package com.frank.barcodehealthapp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merges the text lines recognized in consecutive camera frames into one document
+ * - A line is matched to a line already seen if their letters and digits are within a small edit distance
+ *   (or one is a clipped prefix/suffix of the other), so the same label line read slightly differently
+ *   in each frame counts as one line
+ * - New lines are inserted after the previous line of the same frame, keeping reading order as the label moves
+ * - The longest reading of a line is kept (lines clipped by the frame edge grow as they come into view)
+ * - Only lines seen in at least MIN_FRAMES frames make it into text(), which drops one-off misreads
+ * Not thread-safe; feed it from one thread
+ */
+final class OcrFrameMerger {
+
+    static final int MIN_FRAMES = 2;
+    static final int MAX_LINES = 200;
+
+    // Allowed edit distance per char of a line's key (1 in 5)
+    private static final int CHARS_PER_EDIT = 5;
+
+    // Shortest reading that may match a longer line as a clipped prefix or suffix
+    private static final int MIN_CLIPPED_CHARS = 8;
+
+    private static final class Line {
+        String text;
+        String key;
+        int frames;
+
+        Line(String text, String key) {
+            this.text = text;
+            this.key = key;
+            this.frames = 1;
+        }
+    }
+
+    private final List<Line> lines = new ArrayList<>();
+
+    /**
+     * Adds one frame's lines, in reading order
+     */
+    void add(List<String> frameLines) {
+        int insertAt = 0;
+        for (String raw : frameLines) {
+            String key = key(raw);
+            if (key.isEmpty()) continue;
+
+            int match = find(key);
+            if (match != -1) {
+                Line line = lines.get(match);
+                line.frames++;
+                if (key.length() > line.key.length()) {
+                    line.text = raw;
+                    line.key = key;
+                }
+                insertAt = match + 1;
+            } else if (lines.size() < MAX_LINES) {
+                lines.add(insertAt, new Line(raw, key));
+                insertAt++;
+            }
+        }
+    }
+
+    /**
+     * The merged lines seen in enough frames, one per row
+     */
+    String text() {
+        StringBuilder text = new StringBuilder();
+        for (Line line : lines) {
+            if (line.frames < MIN_FRAMES) continue;
+            if (text.length() > 0) text.append('\n');
+            text.append(line.text);
+        }
+        return text.toString();
+    }
+
+    void reset() {
+        lines.clear();
+    }
+
+    // Closest known line within the allowed distance, earliest on ties, or -1
+    private int find(String key) {
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < lines.size(); i++) {
+            String other = lines.get(i).key;
+            if (other.equals(key)) return i;
+
+            // Only a strictly closer line can replace the current best
+            int cap = Math.min(allowedDistance(key, other), bestDistance - 1);
+            if (cap < 0) continue;
+            int distance = EditDistance.bounded(key, other, cap);
+            if (distance <= cap) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    // One edit per CHARS_PER_EDIT chars, or any length difference if one reading is a clipped part of the other
+    private static int allowedDistance(String a, String b) {
+        String shorter = a.length() <= b.length() ? a : b;
+        String longer = shorter == a ? b : a;
+        if (shorter.length() >= MIN_CLIPPED_CHARS && (longer.startsWith(shorter) || longer.endsWith(shorter))) {
+            return longer.length() - shorter.length();
+        }
+        return longer.length() / CHARS_PER_EDIT;
+    }
+
+    // Lowercase letters and digits only
+    private static String key(String text) {
+        StringBuilder key = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) key.append(Character.toLowerCase(c));
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,129 @@
+package com.frank.barcodehealthapp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Aho-Corasick automaton over a fixed set of lowercase phrases, compiled to a dense transition
+ * table. Each phrase carries a flag; step() moves one character and flags() reports the union of
+ * the flags of every phrase ending at the current position.
+ * Characters that appear in no phrase send the automaton back to the root.
+ * Plain Java, immutable once built, safe to share between threads
+ */
+final class PhraseAutomaton {
+
+    static final int ROOT = 0;
+
+    // ASCII characters map through a table, others through a sorted array
+    private final int[] asciiClass = new int[128];
+    private final char[] otherChars;
+    private final int[] otherClass;
+    private final int classCount;
+
+    private final int[] transitions; // state * classCount + class
+    private final int[] flags;
+
+    PhraseAutomaton(List<String> phrases, List<Integer> phraseFlags) {
+        // Character classes: 0 for "not in any phrase", then one per distinct phrase character
+        TreeSet<Character> alphabet = new TreeSet<>();
+        for (String phrase : phrases) {
+            for (int i = 0; i < phrase.length(); i++) alphabet.add(phrase.charAt(i));
+        }
+        List<Character> others = new ArrayList<>();
+        int nextClass = 1;
+        for (char c : alphabet) {
+            if (c < 128) asciiClass[c] = nextClass++;
+            else others.add(c);
+        }
+        otherChars = new char[others.size()];
+        otherClass = new int[others.size()];
+        for (int i = 0; i < others.size(); i++) {
+            otherChars[i] = others.get(i);
+            otherClass[i] = nextClass++;
+        }
+        classCount = nextClass;
+
+        // Trie
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> output = new ArrayList<>();
+        trie.add(newRow());
+        output.add(0);
+        for (int p = 0; p < phrases.size(); p++) {
+            String phrase = phrases.get(p);
+            if (phrase.isEmpty()) continue;
+            int state = ROOT;
+            for (int i = 0; i < phrase.length(); i++) {
+                int c = classOf(phrase.charAt(i));
+                if (trie.get(state)[c] == -1) {
+                    trie.get(state)[c] = trie.size();
+                    trie.add(newRow());
+                    output.add(0);
+                }
+                state = trie.get(state)[c];
+            }
+            output.set(state, output.get(state) | phraseFlags.get(p));
+        }
+
+        // Breadth-first: fill missing edges from the fail state and fold in its outputs
+        int states = trie.size();
+        transitions = new int[states * classCount];
+        flags = new int[states];
+        int[] fail = new int[states];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < classCount; c++) {
+            int next = trie.get(ROOT)[c];
+            if (next == -1 || c == 0) {
+                transitions[c] = ROOT;
+            } else {
+                transitions[c] = next;
+                fail[next] = ROOT;
+                queue.add(next);
+            }
+        }
+        flags[ROOT] = output.get(ROOT);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            flags[state] = output.get(state) | flags[fail[state]];
+            for (int c = 0; c < classCount; c++) {
+                int next = c == 0 ? -1 : trie.get(state)[c];
+                if (next == -1) {
+                    transitions[state * classCount + c] = transitions[fail[state] * classCount + c];
+                } else {
+                    transitions[state * classCount + c] = next;
+                    fail[next] = transitions[fail[state] * classCount + c];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    private int[] newRow() {
+        int[] row = new int[classCount];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private int classOf(char c) {
+        if (c < 128) return asciiClass[c];
+        int i = Arrays.binarySearch(otherChars, c);
+        return i < 0 ? 0 : otherClass[i];
+    }
+
+    /**
+     * Next state after reading an (already lowercased) character
+     */
+    int step(int state, char c) {
+        return transitions[state * classCount + classOf(c)];
+    }
+
+    /**
+     * Flags of every phrase that ends in this state
+     */
+    int flags(int state) {
+        return flags[state];
+    }
+}